@@ -3,9 +3,11 @@ package com.quickcart.ecommerce;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching
+@EnableScheduling // Background jobs, e.g. releasing expired stock reservations
 public class EcommerceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,203 @@
+package com.quickcart.ecommerce.config;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary serializer for Redis cache values.
+ *
+ * Layout: [MAGIC][flags][type tag][payload]
+ * - Registered types are written field by field with their {@link CacheCodec} (no class names, no field names).
+ * - Anything else falls back to the JSON serializer (tag 0), so every value can still be cached.
+ * - Payloads bigger than the threshold are Deflate-compressed (flag bit 0).
+ * - Values without the MAGIC byte are old JSON entries and are read with the JSON serializer,
+ *   so a cache can be switched to this serializer without flushing Redis.
+ */
+public class BinaryCacheSerializer implements RedisSerializer<Object> {
+
+    static final byte MAGIC = (byte) 0xB1; // JSON always starts with '{', '[' or '"'
+    private static final byte FLAG_DEFLATE = 1;
+    private static final byte TAG_JSON = 0;
+
+    private final List<Registration> registrations = new ArrayList<>();
+    private final RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer();
+    private final int compressThresholdBytes;
+
+    public BinaryCacheSerializer(int compressThresholdBytes) {
+        this.compressThresholdBytes = compressThresholdBytes;
+    }
+
+    public <T> BinaryCacheSerializer register(int tag, Class<T> type, CacheCodec<T> codec) {
+        return register(tag, type::isInstance, codec);
+    }
+
+    /**
+     * Lists are registered by element type, e.g. the cached "allProducts" list.
+     */
+    public <E> BinaryCacheSerializer registerList(int tag, Class<E> elementType, CacheCodec<E> elementCodec) {
+        Predicate<Object> accepts = value -> value instanceof List
+                && ((List<?>) value).stream().allMatch(elementType::isInstance);
+        return register(tag, accepts, new CacheCodec<List<E>>() {
+            @Override
+            public void write(DataOutputStream out, List<E> list) throws IOException {
+                out.writeInt(list.size());
+                for (E element : list) {
+                    elementCodec.write(out, element);
+                }
+            }
+
+            @Override
+            public List<E> read(DataInputStream in) throws IOException {
+                int size = in.readInt();
+                List<E> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(elementCodec.read(in));
+                }
+                return list;
+            }
+        });
+    }
+
+    private BinaryCacheSerializer register(int tag, Predicate<Object> accepts, CacheCodec<?> codec) {
+        if (tag <= TAG_JSON || tag > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Tag must be between 1 and 127: " + tag);
+        }
+        registrations.add(new Registration((byte) tag, accepts, codec));
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(body);
+            Registration registration = find(value);
+            if (registration != null) {
+                out.writeByte(registration.tag);
+                ((CacheCodec<Object>) registration.codec).write(out, value);
+            } else {
+                out.writeByte(TAG_JSON);
+                out.write(json.serialize(value));
+            }
+            out.flush();
+
+            byte[] payload = body.toByteArray();
+            byte flags = 0;
+            if (payload.length > compressThresholdBytes) {
+                payload = deflate(payload);
+                flags |= FLAG_DEFLATE;
+            }
+            byte[] result = new byte[payload.length + 2];
+            result[0] = MAGIC;
+            result[1] = flags;
+            System.arraycopy(payload, 0, result, 2, payload.length);
+            return result;
+        } catch (IOException e) {
+            throw new SerializationException("Could not write cache value of type " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return json.deserialize(bytes); // Entry written before this cache was switched to binary
+        }
+        try {
+            byte[] payload = new byte[bytes.length - 2];
+            System.arraycopy(bytes, 2, payload, 0, payload.length);
+            if ((bytes[1] & FLAG_DEFLATE) != 0) {
+                payload = inflate(payload);
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte tag = in.readByte();
+            if (tag == TAG_JSON) {
+                return json.deserialize(in.readAllBytes());
+            }
+            for (Registration registration : registrations) {
+                if (registration.tag == tag) {
+                    return registration.codec.read(in);
+                }
+            }
+            throw new SerializationException("Unknown cache value tag: " + tag);
+        } catch (IOException | DataFormatException e) {
+            throw new SerializationException("Could not read cache value", e);
+        }
+    }
+
+    private Registration find(Object value) {
+        for (Registration registration : registrations) {
+            if (registration.accepts.test(value)) {
+                return registration;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new DataFormatException("Truncated compressed cache value");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Registration {
+        final byte tag;
+        final Predicate<Object> accepts;
+        final CacheCodec<?> codec;
+
+        Registration(byte tag, Predicate<Object> accepts, CacheCodec<?> codec) {
+            this.tag = tag;
+            this.accepts = accepts;
+            this.codec = codec;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.quickcart.ecommerce.config;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Hand-written binary layout for one cached type, used by {@link BinaryCacheSerializer}.
+ * Write a version byte first so the layout can change without breaking entries already in Redis.
+ */
+public interface CacheCodec<T> {
+
+    void write(DataOutputStream out, T value) throws IOException;
+
+    T read(DataInputStream in) throws IOException;
+}
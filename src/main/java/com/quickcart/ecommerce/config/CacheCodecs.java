@@ -0,0 +1,148 @@
+package com.quickcart.ecommerce.config;
+
+import com.quickcart.ecommerce.dto.ProductIdPage;
+import com.quickcart.ecommerce.entity.Product;
+import com.quickcart.ecommerce.entity.Wishlist;
+import com.quickcart.ecommerce.utills.Money;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary layouts of the values we cache. Field order is the schema: when a class changes,
+ * bump its version byte and keep reading the old version until those entries have expired.
+ */
+public final class CacheCodecs {
+
+    public static final int PRODUCT_TAG = 1;
+    public static final int PRODUCT_LIST_TAG = 2;
+    public static final int PRODUCT_ID_PAGE_TAG = 3;
+    public static final int WISHLIST_TAG = 4;
+
+    private CacheCodecs() {
+    }
+
+    public static BinaryCacheSerializer serializer(int compressThresholdBytes) {
+        return new BinaryCacheSerializer(compressThresholdBytes)
+                .register(PRODUCT_TAG, Product.class, PRODUCT)
+                .registerList(PRODUCT_LIST_TAG, Product.class, PRODUCT)
+                .register(PRODUCT_ID_PAGE_TAG, ProductIdPage.class, PRODUCT_ID_PAGE)
+                .register(WISHLIST_TAG, Wishlist.class, WISHLIST);
+    }
+
+    public static final CacheCodec<Product> PRODUCT = new CacheCodec<>() {
+        private static final int VERSION = 2; // 2: price is a long in paise (1 had a double in rupees)
+
+        @Override
+        public void write(DataOutputStream out, Product product) throws IOException {
+            out.writeByte(VERSION);
+            writeString(out, product.getId());
+            writeString(out, product.getName());
+            writeString(out, product.getDescription());
+            out.writeLong(product.getPrice());
+            out.writeInt(product.getStock());
+        }
+
+        @Override
+        public Product read(DataInputStream in) throws IOException {
+            int version = in.readUnsignedByte();
+            if (version != VERSION && version != 1) {
+                throw new StreamCorruptedException("Unsupported Product cache layout version " + version);
+            }
+            Product product = new Product();
+            product.setId(readString(in));
+            product.setName(readString(in));
+            product.setDescription(readString(in));
+            product.setPrice(version == 1 ? Money.fromMajor(in.readDouble()) : in.readLong());
+            product.setStock(in.readInt());
+            return product;
+        }
+    };
+
+    public static final CacheCodec<ProductIdPage> PRODUCT_ID_PAGE = new CacheCodec<>() {
+        private static final int VERSION = 1;
+
+        @Override
+        public void write(DataOutputStream out, ProductIdPage page) throws IOException {
+            out.writeByte(VERSION);
+            out.writeInt(page.getIds().size());
+            for (String id : page.getIds()) {
+                writeString(out, id);
+            }
+            writeString(out, page.getNextCursor());
+            out.writeBoolean(page.isHasMore());
+        }
+
+        @Override
+        public ProductIdPage read(DataInputStream in) throws IOException {
+            checkVersion(in, VERSION, "ProductIdPage");
+            int size = in.readInt();
+            List<String> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ids.add(readString(in));
+            }
+            return new ProductIdPage(ids, readString(in), in.readBoolean());
+        }
+    };
+
+    public static final CacheCodec<Wishlist> WISHLIST = new CacheCodec<>() {
+        private static final int VERSION = 1;
+
+        @Override
+        public void write(DataOutputStream out, Wishlist wishlist) throws IOException {
+            out.writeByte(VERSION);
+            writeString(out, wishlist.getId());
+            writeString(out, wishlist.getUserId());
+            out.writeInt(wishlist.getProducts().size());
+            for (Product product : wishlist.getProducts()) {
+                PRODUCT.write(out, product);
+            }
+        }
+
+        @Override
+        public Wishlist read(DataInputStream in) throws IOException {
+            checkVersion(in, VERSION, "Wishlist");
+            Wishlist wishlist = new Wishlist();
+            wishlist.setId(readString(in));
+            wishlist.setUserId(readString(in));
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                wishlist.getProducts().add(PRODUCT.read(in));
+            }
+            return wishlist;
+        }
+    };
+
+    // Length-prefixed UTF-8, -1 for null
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkVersion(DataInputStream in, int expected, String type) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != expected) {
+            throw new StreamCorruptedException("Unsupported " + type + " cache layout version " + version);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.quickcart.ecommerce.config;
+
+import com.mongodb.MongoException;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs checkout writes (insert the order, clear the cart) in one MongoDB multi-document transaction when the
+ * database supports them.
+ *
+ * LOGIC:
+ * 1. checkout.transactional=auto (default): on first use, ask the server whether it is a replica set member or
+ *    a mongos (Atlas clusters are); a standalone mongod rejects transactions, so the writes then run without one.
+ *    true/false force it on or off.
+ * 2. A transaction aborted with the TransientTransactionError label (write conflict with a concurrent cart update,
+ *    primary election) is run again from the start, up to checkout.transaction.max-attempts times.
+ */
+@Component
+@Slf4j
+public class CheckoutTransaction {
+
+    @Autowired
+    private MongoDatabaseFactory databaseFactory;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${checkout.transactional:auto}")
+    private String mode;
+
+    @Value("${checkout.transaction.max-attempts:3}")
+    private int maxAttempts;
+
+    private volatile TransactionTemplate template;
+    private volatile boolean resolved;
+
+    public void run(Runnable work) {
+        TransactionTemplate transaction = transaction();
+        if (transaction == null) {
+            work.run();
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transaction.executeWithoutResult(status -> work.run());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                log.warn("Checkout transaction aborted (attempt {} of {}), retrying: {}", attempt, maxAttempts, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Whether run() uses a transaction. Without one, writes done after the order insert can't be undone with it.
+     */
+    public boolean isEnabled() {
+        return transaction() != null;
+    }
+
+    private TransactionTemplate transaction() {
+        if (!resolved) {
+            synchronized (this) {
+                if (!resolved) {
+                    boolean enabled;
+                    if ("auto".equalsIgnoreCase(mode)) {
+                        Boolean supported = supportsTransactions();
+                        if (supported == null) {
+                            return null; // Could not ask the server: no transaction this time, ask again next time
+                        }
+                        enabled = supported;
+                    } else {
+                        enabled = Boolean.parseBoolean(mode);
+                    }
+                    template = enabled ? new TransactionTemplate(new MongoTransactionManager(databaseFactory)) : null;
+                    resolved = true;
+                    log.info("Checkout transactions {} (checkout.transactional={})", enabled ? "enabled" : "disabled", mode);
+                }
+            }
+        }
+        return template;
+    }
+
+    // Replica set members report a setName, mongos answers "isdbgrid"; null if the server could not be asked
+    private Boolean supportsTransactions() {
+        try {
+            Document hello = mongoTemplate.executeCommand(new Document("isMaster", 1));
+            return hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"));
+        } catch (RuntimeException e) {
+            log.warn("Could not check whether MongoDB supports transactions: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException
+                    && ((MongoException) cause).hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
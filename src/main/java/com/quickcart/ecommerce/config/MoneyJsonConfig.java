@@ -0,0 +1,81 @@
+package com.quickcart.ecommerce.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.quickcart.ecommerce.utills.Money;
+import com.quickcart.ecommerce.utills.Rupees;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Amounts are stored as long paise, but the REST API keeps speaking rupees with decimals (as it always did):
+ * "price": 4999.99 in a request becomes 499999 paise, exactly, and goes back out as 4999.99.
+ * Spring Boot adds this module to the API's ObjectMapper only; the Redis JSON serializers don't see it.
+ */
+@Configuration
+public class MoneyJsonConfig {
+
+    @Bean
+    public Module rupeesModule() {
+        return new SimpleModule("rupees") {
+            @Override
+            public void setupModule(SetupContext context) {
+                super.setupModule(context);
+                context.insertAnnotationIntrospector(new NopAnnotationIntrospector() {
+                    @Override
+                    public Object findSerializer(Annotated annotated) {
+                        return annotated.hasAnnotation(Rupees.class) ? RupeesSerializer.class : null;
+                    }
+
+                    @Override
+                    public Object findDeserializer(Annotated annotated) {
+                        return annotated.hasAnnotation(Rupees.class) ? RupeesDeserializer.class : null;
+                    }
+                });
+            }
+        };
+    }
+
+    static class RupeesSerializer extends JsonSerializer<Long> {
+        @Override
+        public void serialize(Long paise, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(Money.toMajor(paise));
+        }
+    }
+
+    static class RupeesDeserializer extends JsonDeserializer<Long> {
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+            BigDecimal rupees;
+            if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT || parser.currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+                rupees = parser.getDecimalValue();
+            } else if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                try {
+                    rupees = new BigDecimal(parser.getText().trim());
+                } catch (NumberFormatException e) {
+                    throw InvalidFormatException.from(parser, "Not an amount", parser.getText(), Long.class);
+                }
+            } else {
+                return (Long) ctxt.handleUnexpectedToken(Long.class, parser);
+            }
+            try {
+                return Money.fromMajor(rupees);
+            } catch (ArithmeticException e) {
+                throw InvalidFormatException.from(parser, "Amounts have at most 2 decimals", rupees, Long.class);
+            }
+        }
+    }
+}
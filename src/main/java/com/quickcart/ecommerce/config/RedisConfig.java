@@ -1,5 +1,6 @@
 package com.quickcart.ecommerce.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,16 +8,37 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.Set;
 
 @Configuration
 @EnableCaching // Important: This enables the @Cacheable annotations
 public class RedisConfig {
 
+    @Value("${cache.near.max-size:1000}")
+    private long nearCacheMaxSize;
+
+    @Value("${cache.near.ttl-seconds:30}")
+    private long nearCacheTtlSeconds;
+
+    @Value("${cache.early-refresh.beta:1.0}")
+    private double earlyRefreshBeta;
+
+    // Caches whose values are stored with the compact binary serializer instead of JSON
+    @Value("${cache.binary.caches:products,allProducts,productPages}")
+    private Set<String> binaryCaches;
+
+    @Value("${cache.binary.compress-threshold-bytes:1024}")
+    private int compressThresholdBytes;
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
@@ -27,7 +49,7 @@ public class RedisConfig {
     }
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory, StringRedisTemplate stringRedisTemplate) {
         ///  Base Configuration (Used for everything else)
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(2))
@@ -35,18 +57,42 @@ public class RedisConfig {
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
 
         ///  Specific Configuration for Wishlists and Products
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 // Wishlists stay for 24 hours because users don't change them every minute
                 .withCacheConfiguration("wishlists",
                         RedisCacheConfiguration.defaultCacheConfig()
                                 .entryTtl(Duration.ofHours(1))
-                                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer())))
+                                .serializeValuesWith(valuesFor("wishlists")))
                 // Products stay for 1 hour to keep prices/stock relatively fresh
                 .withCacheConfiguration("products",
                         RedisCacheConfiguration.defaultCacheConfig()
                                 .entryTtl(Duration.ofHours(1))
-                                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer())))
+                                .serializeValuesWith(valuesFor("products")))
+                // The full list and the pages keep the default 2 minutes, only the value format can differ
+                .withCacheConfiguration("allProducts", defaultConfig.serializeValuesWith(valuesFor("allProducts")))
+                .withCacheConfiguration("productPages", defaultConfig.serializeValuesWith(valuesFor("productPages")))
                 .build();
+        redisCacheManager.afterPropertiesSet();
+
+        ///  Hot products are also kept in-process so repeated reads never leave the JVM
+        return new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate, Set.of("products"),
+                nearCacheMaxSize, Duration.ofSeconds(nearCacheTtlSeconds), earlyRefreshBeta);
+    }
+
+    private RedisSerializationContext.SerializationPair<Object> valuesFor(String cacheName) {
+        RedisSerializer<Object> serializer = binaryCaches.contains(cacheName)
+                ? CacheCodecs.serializer(compressThresholdBytes)
+                : new GenericJackson2JsonRedisSerializer();
+        return RedisSerializationContext.SerializationPair.fromSerializer(serializer);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                   TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        return container;
     }
 }
\ No newline at end of file
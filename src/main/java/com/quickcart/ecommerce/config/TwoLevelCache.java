@@ -0,0 +1,322 @@
+package com.quickcart.ecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Near-cache in front of a {@link RedisCache}.
+ *
+ * LOGIC:
+ * 1. Look in the in-process L1 (Caffeine, bounded by size and TTL). L1 keeps the serialized bytes and every
+ *    read decodes its own copy, so a caller editing the object it got never changes what others see.
+ * 2. On L1 miss, read Redis (L2) and keep a local copy of its bytes.
+ * 3. On a full miss only ONE loader per key runs on this node ({@link SingleFlight}); other callers wait for it.
+ * 4. Shortly before the Redis entry expires, a random reader may reload it early (probabilistic early
+ *    refresh, "XFetch") so hot keys are refreshed before they expire instead of all missing at once.
+ * 5. Writes and evictions go to both levels and are broadcast on
+ *    {@link TwoLevelCacheManager#INVALIDATION_CHANNEL} so other nodes drop their L1 copy.
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    // RedisCache stores null values as a JDK-serialized NullValue, whatever the value serializer is
+    private static final byte[] BINARY_NULL_VALUE = RedisSerializer.java().serialize(NullValue.INSTANCE);
+    private static final long UNKNOWN_EXPIRY = Long.MAX_VALUE;
+
+    private final String name;
+    private final Cache<Object, LocalEntry> local;
+    private final RedisCache redis;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId;
+    private final double earlyRefreshBeta; // 0 disables early refresh
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    // Moving average of how long the loader (MongoDB) takes, the "delta" of XFetch
+    private volatile double loadMillis;
+
+    public TwoLevelCache(String name, Cache<Object, LocalEntry> local, RedisCache redis,
+                         StringRedisTemplate redisTemplate, String nodeId, double earlyRefreshBeta) {
+        super(true); // Must match RedisCache: empty Optionals are cached as NullValue
+        this.name = name;
+        this.local = local;
+        this.redis = redis;
+        this.redisTemplate = redisTemplate;
+        this.nodeId = nodeId;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redis.getNativeCache();
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        LocalEntry entry = local.getIfPresent(key);
+        if (entry == null) {
+            entry = fetchRemote(key);
+            if (entry == null) {
+                return null;
+            }
+            local.put(key, entry);
+        }
+        return decode(entry.bytes);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        LocalEntry entry = local.getIfPresent(key);
+        try {
+            if (entry == null) {
+                entry = (LocalEntry) singleFlight.run(key, () -> {
+                    LocalEntry loaded = fetchRemote(key);
+                    if (loaded == null) {
+                        loaded = loadAndStore(key, valueLoader);
+                    }
+                    local.put(key, loaded);
+                    return loaded;
+                });
+            } else if (shouldRefreshEarly(entry)) {
+                refreshEarly(key, valueLoader);
+                LocalEntry refreshed = local.getIfPresent(key);
+                entry = refreshed != null ? refreshed : entry;
+            }
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        return (T) fromStoreValue(decode(entry.bytes));
+    }
+
+    private void refreshEarly(Object key, Callable<?> valueLoader) {
+        try {
+            // If another thread is already refreshing this key we just serve the current value
+            singleFlight.tryRun(key, () -> {
+                log.debug("Early refresh: {}::{}", name, key); // Debug only: fires on every hot key during spikes
+                local.put(key, loadAndStore(key, valueLoader));
+                publishInvalidation(key);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Early refresh failed for {}::{}, serving cached value: {}", name, key, e.getMessage());
+        }
+    }
+
+    // XFetch: refresh when  now - delta * beta * ln(random)  passes the expiry time
+    private boolean shouldRefreshEarly(LocalEntry entry) {
+        if (earlyRefreshBeta <= 0 || entry.redisExpiresAt == UNKNOWN_EXPIRY) {
+            return false;
+        }
+        double gap = loadMillis * earlyRefreshBeta * -Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= entry.redisExpiresAt;
+    }
+
+    private LocalEntry loadAndStore(Object key, Callable<?> valueLoader) throws Exception {
+        long start = System.nanoTime();
+        Object value = valueLoader.call();
+        double took = (System.nanoTime() - start) / 1_000_000.0;
+        loadMillis = loadMillis == 0 ? took : loadMillis * 0.8 + took * 0.2;
+
+        redis.put(key, value);
+        return new LocalEntry(encode(value), expiryFromNow());
+    }
+
+    // GET + PTTL in one pipelined round trip, so the L1 entry knows when the Redis copy expires
+    private LocalEntry fetchRemote(Object key) {
+        byte[] redisKey = redisKey(key);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.get(redisKey);
+            connection.pTtl(redisKey);
+            return null;
+        }, RedisSerializer.byteArray());
+        byte[] bytes = (byte[]) results.get(0);
+        if (bytes == null) {
+            return null;
+        }
+        Long pttl = (Long) results.get(1);
+        long expiresAt = pttl == null || pttl < 0 ? UNKNOWN_EXPIRY : System.currentTimeMillis() + pttl;
+        return new LocalEntry(bytes, expiresAt);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        redis.put(key, value);
+        local.put(key, new LocalEntry(encode(value), expiryFromNow()));
+        publishInvalidation(key);
+    }
+
+    @Override
+    public void evict(Object key) {
+        redis.evict(key);
+        local.invalidate(key);
+        publishInvalidation(key);
+    }
+
+    @Override
+    public void clear() {
+        redis.clear();
+        local.invalidateAll();
+        publishInvalidation(null);
+    }
+
+    /**
+     * Multi-get: local hits first, then ONE Redis MGET for everything else.
+     * Returned map holds user values (null = cached "not found"); keys missing from the map are misses.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> found = new HashMap<>();
+        List<Object> remoteKeys = new ArrayList<>();
+        for (Object key : keys) {
+            LocalEntry entry = local.getIfPresent(key);
+            if (entry != null) {
+                found.put(key, fromStoreValue(decode(entry.bytes)));
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return found;
+        }
+
+        // MGET plus one PTTL per key, pipelined: still one round trip, and batch-loaded entries get refreshed early too
+        byte[][] redisKeys = remoteKeys.stream().map(this::redisKey).toArray(byte[][]::new);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.mGet(redisKeys);
+            for (byte[] redisKey : redisKeys) {
+                connection.pTtl(redisKey);
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+        List<byte[]> values = (List<byte[]>) results.get(0);
+        long now = System.currentTimeMillis();
+        for (int i = 0; values != null && i < remoteKeys.size(); i++) {
+            byte[] bytes = values.get(i);
+            if (bytes == null) {
+                continue;
+            }
+            Long pttl = (Long) results.get(i + 1);
+            long expiresAt = pttl == null || pttl < 0 ? UNKNOWN_EXPIRY : now + pttl;
+            local.put(remoteKeys.get(i), new LocalEntry(bytes, expiresAt));
+            found.put(remoteKeys.get(i), fromStoreValue(decode(bytes)));
+        }
+        return found;
+    }
+
+    /**
+     * Back-fills both levels in one pipelined round trip.
+     * Values must come straight from the database, so no invalidation is broadcast.
+     * Redis is only written where the key is still absent (SET NX): a write-through that happened while we were
+     * reading the database is newer, and must not be overwritten by our copy for the whole TTL.
+     */
+    public void putAll(Map<?, ?> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Expiration expiration = config().getTtl().isZero()
+                ? Expiration.persistent()
+                : Expiration.from(config().getTtl());
+        List<Object> keys = new ArrayList<>(entries.keySet());
+        List<byte[]> values = keys.stream().map(key -> encode(entries.get(key))).collect(Collectors.toList());
+        List<Object> written = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < keys.size(); i++) {
+                connection.set(redisKey(keys.get(i)), values.get(i), expiration, RedisStringCommands.SetOption.ifAbsent());
+            }
+            return null;
+        });
+        long expiresAt = expiryFromNow();
+        for (int i = 0; i < keys.size(); i++) {
+            // Keys that already had a value keep it; the near cache picks that one up on the next read
+            if (Boolean.TRUE.equals(written.get(i))) {
+                local.put(keys.get(i), new LocalEntry(values.get(i), expiresAt));
+            }
+        }
+    }
+
+    // Same bytes RedisCache writes for this value
+    private byte[] encode(Object value) {
+        return value == null || value instanceof NullValue
+                ? BINARY_NULL_VALUE
+                : ByteUtils.getBytes(config().getValueSerializationPair().write(value));
+    }
+
+    private Object decode(byte[] bytes) {
+        return Arrays.equals(bytes, BINARY_NULL_VALUE)
+                ? NullValue.INSTANCE
+                : config().getValueSerializationPair().read(ByteBuffer.wrap(bytes));
+    }
+
+    private long expiryFromNow() {
+        return config().getTtl().isZero() ? UNKNOWN_EXPIRY : System.currentTimeMillis() + config().getTtl().toMillis();
+    }
+
+    private RedisCacheConfiguration config() {
+        return redis.getCacheConfiguration();
+    }
+
+    // Same layout RedisCache uses: "<cacheName>::<key>"
+    private byte[] redisKey(Object key) {
+        String cacheKey = config().usePrefix() ? config().getKeyPrefixFor(name) + key : key.toString();
+        return ByteUtils.getBytes(config().getKeySerializationPair().write(cacheKey));
+    }
+
+    /**
+     * Drops the local copy only. Called when another node changed the entry.
+     */
+    void evictLocal(Object key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    private void publishInvalidation(Object key) {
+        try {
+            redisTemplate.convertAndSend(TwoLevelCacheManager.INVALIDATION_CHANNEL,
+                    TwoLevelCacheManager.encodeInvalidation(nodeId, name, key));
+        } catch (Exception e) {
+            // Other nodes fall back to their L1 TTL if the message is lost
+            log.warn("Could not publish cache invalidation for {}::{}: {}", name, key, e.getMessage());
+        }
+    }
+
+    /**
+     * L1 value (serialized, never handed out as is) plus the time its Redis copy expires (needed for early refresh).
+     */
+    static final class LocalEntry {
+        final byte[] bytes;
+        final long redisExpiresAt;
+
+        LocalEntry(byte[] bytes, long redisExpiresAt) {
+            this.bytes = bytes;
+            this.redisExpiresAt = redisExpiresAt;
+        }
+    }
+}
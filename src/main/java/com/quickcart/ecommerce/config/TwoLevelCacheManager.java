@@ -0,0 +1,89 @@
+package com.quickcart.ecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps the {@link RedisCacheManager} and adds an in-process L1 to the caches listed in {@code nearCacheNames}.
+ * All other caches are returned straight from Redis.
+ *
+ * It also listens on {@link #INVALIDATION_CHANNEL} and drops L1 entries changed by other nodes.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "cache:invalidate";
+    private static final String SEPARATOR = "|";
+    private static final String ALL_KEYS = "*";
+
+    private final RedisCacheManager redisCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final Set<String> nearCacheNames;
+    private final long maxSize;
+    private final Duration ttl;
+    private final double earlyRefreshBeta;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> nearCaches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager, StringRedisTemplate redisTemplate,
+                                Set<String> nearCacheNames, long maxSize, Duration ttl, double earlyRefreshBeta) {
+        this.redisCacheManager = redisCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.nearCacheNames = nearCacheNames;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        if (!nearCacheNames.contains(name)) {
+            return redisCacheManager.getCache(name);
+        }
+        return nearCaches.computeIfAbsent(name, n -> new TwoLevelCache(
+                n,
+                Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build(),
+                (RedisCache) redisCacheManager.getCache(n),
+                redisTemplate,
+                nodeId,
+                earlyRefreshBeta));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return redisCacheManager.getCacheNames();
+    }
+
+    // Message format: nodeId|cacheName|key ("*" as key clears the whole cache)
+    static String encodeInvalidation(String nodeId, String cacheName, Object key) {
+        return nodeId + SEPARATOR + cacheName + SEPARATOR + (key == null ? ALL_KEYS : key.toString());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\" + SEPARATOR, 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return; // Malformed, or our own write (already applied locally)
+        }
+        TwoLevelCache cache = nearCaches.get(parts[1]);
+        if (cache != null) {
+            cache.evictLocal(ALL_KEYS.equals(parts[2]) ? null : parts[2]);
+            log.debug("L1 invalidated by peer: {}::{}", parts[1], parts[2]);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.quickcart.ecommerce.controller;
 
 
 import com.quickcart.ecommerce.entity.UserEntry;
+import com.quickcart.ecommerce.security.TooManyRequestsException;
 import com.quickcart.ecommerce.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -84,6 +85,8 @@ public class AdminController {
         try {
             userService.saveAdmin(admin);
             return new ResponseEntity<>(admin, HttpStatus.CREATED);
+        } catch (TooManyRequestsException e) {
+            return new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
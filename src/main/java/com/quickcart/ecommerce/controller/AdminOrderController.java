@@ -0,0 +1,57 @@
+package com.quickcart.ecommerce.controller;
+
+import com.quickcart.ecommerce.dto.OrderPage;
+import com.quickcart.ecommerce.service.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+
+@RestController
+@RequestMapping("/admin/orders")
+@Tag(name = "Admin - Order Management", description = "Admin-only APIs for viewing orders. Requires ADMIN role.")
+@SecurityRequirement(name = "Bearer Authentication")
+public class AdminOrderController {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Operation(
+            summary = "[ADMIN] Get orders page",
+            description = "Retrieve one page of all orders, newest first, without the order items. " +
+                    "Optionally filter by user, status and date range. Pass the returned nextCursor as 'after' to get the next page. " +
+                    "Restricted to ADMIN role only.",
+            tags = {"Admin - Order Management"}
+    )
+    @GetMapping
+    public ResponseEntity<?> getOrderPage(
+            @Parameter(description = "Only orders of this user", example = "65abc123def456789012")
+            @RequestParam(required = false) String userId,
+            @Parameter(description = "Only orders with this status", example = "Pending")
+            @RequestParam(required = false) String status,
+            @Parameter(description = "Only orders placed at or after this time (ISO-8601)", example = "2024-01-01T00:00:00Z")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @Parameter(description = "Only orders placed before this time (ISO-8601)", example = "2024-02-01T00:00:00Z")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @Parameter(description = "ID of the last order on the previous page (omit for the first page)", example = "65def789ghi012345678")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Page size (1-" + OrderService.MAX_PAGE_SIZE + ")", example = "20")
+            @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > OrderService.MAX_PAGE_SIZE) {
+            return new ResponseEntity<>("Page size must be between 1 and " + OrderService.MAX_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+        if (after != null && !ObjectId.isValid(after)) {
+            return new ResponseEntity<>("Invalid cursor", HttpStatus.BAD_REQUEST);
+        }
+        OrderPage page = orderService.getOrderPage(userId, status, from, to, after, size);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+}
@@ -1,6 +1,7 @@
 package com.quickcart.ecommerce.controller;
 
 
+import com.quickcart.ecommerce.dto.ProductPage;
 import com.quickcart.ecommerce.entity.Product;
 import com.quickcart.ecommerce.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,6 +11,7 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -30,6 +32,7 @@ public class AdminProductController {
     @Operation(
             summary = "[ADMIN] Get all products",
             description = "Retrieve complete list of all products in the system. " +
+                    "For large catalogs prefer /admin/product/page. " +
                     "Restricted to ADMIN role. Requires JWT token with ADMIN privileges.",
             tags = {"Admin - Product Management"}
     )
@@ -42,6 +45,28 @@ public class AdminProductController {
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    @Operation(
+            summary = "[ADMIN] Get products page",
+            description = "Retrieve one page of products ordered by ID. Pass the returned nextCursor as 'after' to get the next page. " +
+                    "Restricted to ADMIN role. Requires JWT token with ADMIN privileges.",
+            tags = {"Admin - Product Management"}
+    )
+    @GetMapping("/page")
+    public ResponseEntity<?> getProductPage(
+            @Parameter(description = "ID of the last product on the previous page (omit for the first page)", example = "65abc123def456789012")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Page size (1-" + ProductService.MAX_PAGE_SIZE + ")", example = "20")
+            @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > ProductService.MAX_PAGE_SIZE) {
+            return new ResponseEntity<>("Page size must be between 1 and " + ProductService.MAX_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+        if (after != null && !ObjectId.isValid(after)) {
+            return new ResponseEntity<>("Invalid cursor", HttpStatus.BAD_REQUEST);
+        }
+        ProductPage page = productService.getProductPage(after, size);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
     @Operation(
             summary = "[ADMIN] Create new product",
             description = "Add a new product to the catalog. Product cache will be cleared automatically. " +
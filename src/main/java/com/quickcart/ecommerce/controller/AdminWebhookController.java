@@ -0,0 +1,59 @@
+package com.quickcart.ecommerce.controller;
+
+import com.quickcart.ecommerce.entity.WebhookEvent;
+import com.quickcart.ecommerce.service.webhook.WebhookQueueService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/admin/webhooks")
+@Tag(name = "Admin - Webhooks", description = "Admin-only APIs for Stripe webhooks that could not be processed. Requires ADMIN role.")
+@SecurityRequirement(name = "Bearer Authentication")
+public class AdminWebhookController {
+
+    public static final int MAX_DEAD_EVENTS = 200;
+
+    @Autowired
+    private WebhookQueueService webhookQueueService;
+
+    @Operation(
+            summary = "[ADMIN] Get dead-letter webhooks",
+            description = "Stripe events that still failed after all retries, newest first, with the last error. " +
+                    "Restricted to ADMIN role only.",
+            tags = {"Admin - Webhooks"}
+    )
+    @GetMapping("/dead")
+    public ResponseEntity<?> getDeadEvents(
+            @Parameter(description = "Maximum number of events (1-" + MAX_DEAD_EVENTS + ")", example = "50")
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_DEAD_EVENTS) {
+            return new ResponseEntity<>("Limit must be between 1 and " + MAX_DEAD_EVENTS, HttpStatus.BAD_REQUEST);
+        }
+        List<WebhookEvent> events = webhookQueueService.getDeadEvents(limit);
+        return new ResponseEntity<>(events, HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "[ADMIN] Retry a dead-letter webhook",
+            description = "Put a dead event back in the queue, with a fresh set of retries (e.g. after fixing the cause). " +
+                    "Restricted to ADMIN role only.",
+            tags = {"Admin - Webhooks"}
+    )
+    @PostMapping("/{id}/retry")
+    public ResponseEntity<WebhookEvent> retryDeadEvent(
+            @Parameter(description = "Webhook event ID (from the dead-letter list)", required = true, example = "65f0a1b2c3d4e5f601234567")
+            @PathVariable String id) {
+        Optional<WebhookEvent> event = webhookQueueService.retryDead(id);
+        return event.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+}
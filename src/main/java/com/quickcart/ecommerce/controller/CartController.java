@@ -3,10 +3,9 @@ package com.quickcart.ecommerce.controller;
 
 import com.quickcart.ecommerce.entity.Cart;
 import com.quickcart.ecommerce.entity.Product;
-import com.quickcart.ecommerce.entity.UserEntry;
 import com.quickcart.ecommerce.service.CartService;
 import com.quickcart.ecommerce.service.ProductService;
-import com.quickcart.ecommerce.service.UserService;
+import com.quickcart.ecommerce.security.CurrentUser;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -14,8 +13,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Optional;
@@ -29,27 +26,26 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
-    @Autowired
-    private UserService userService;
-
     @Autowired
     private ProductService productService;
 
     @Operation(
             summary = "Get user's cart",
             description = "Retrieve the shopping cart for the currently authenticated user. " +
-                    "Returns cart with all items, quantities, and total price. Requires JWT authentication.",
+                    "Returns cart with all items, quantities, and total price. " +
+                    "Each item carries a snapshot of its product; pass hydrate=true to also get the current product. " +
+                    "Requires JWT authentication.",
             tags = {"Shopping Cart"}
     )
     @GetMapping("/me")
-    public ResponseEntity<Cart> getCartByUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    public ResponseEntity<Cart> getCartByUserId(
+            @Parameter(description = "Also attach the current product to every item", example = "false")
+            @RequestParam(defaultValue = "false") boolean hydrate,
+            CurrentUser currentUser) {
+        Optional<Cart> cart = cartService.getCartByUserId(currentUser.getId());
+        if (hydrate) {
+            cart.ifPresent(cartService::hydrate);
         }
-        Optional<Cart> cart = cartService.getCartByUserId(user.getId());
         return cart.map(ResponseEntity::ok).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
@@ -66,14 +62,8 @@ public class CartController {
             @Parameter(description = "Product ID to add", required = true, example = "65abc123def456789012")
             @PathVariable String productId,
             @Parameter(description = "Quantity to add (must be positive integer)", required = true, example = "2")
-            @PathVariable int quantity) {
-
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            @PathVariable int quantity,
+            CurrentUser currentUser) {
 
         Optional<Product> productOpt = productService.getById(productId);
         if (productOpt.isEmpty()) {
@@ -86,7 +76,7 @@ public class CartController {
                     HttpStatus.BAD_REQUEST);
         }
 
-        Cart updatedCart = cartService.addProductToCart(user.getId(), product, quantity);
+        Cart updatedCart = cartService.addProductToCart(currentUser.getId(), product, quantity);
         return new ResponseEntity<>(updatedCart, HttpStatus.OK);
     }
 
@@ -99,16 +89,10 @@ public class CartController {
     @DeleteMapping("/removeItem/{productId}")
     public ResponseEntity<?> removeItemFromCart(
             @Parameter(description = "Product ID to remove", required = true, example = "65abc123def456789012")
-            @PathVariable String productId) {
-
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            @PathVariable String productId,
+            CurrentUser currentUser) {
 
-        cartService.removeProductFromCart(user.getId(), productId);
+        cartService.removeProductFromCart(currentUser.getId(), productId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
\ No newline at end of file
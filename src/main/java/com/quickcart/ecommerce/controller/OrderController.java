@@ -1,33 +1,41 @@
 package com.quickcart.ecommerce.controller;
 
+import com.quickcart.ecommerce.dto.CheckoutStatus;
+import com.quickcart.ecommerce.dto.OrderPage;
 import com.quickcart.ecommerce.entity.*;
 import com.quickcart.ecommerce.service.*;
+import com.quickcart.ecommerce.service.payment.CheckoutUnavailableException;
+import com.quickcart.ecommerce.security.CurrentUser;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
+import java.net.URI;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
+@Slf4j
 @RequestMapping("/order")
 @Tag(name = "Orders", description = "APIs for order management and checkout. Requires authentication (USER role).")
 @SecurityRequirement(name = "Bearer Authentication")
 public class OrderController {
 
-    @Autowired
-    private OrderService orderService;
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
 
     @Autowired
-    private UserService userService;
+    private OrderService orderService;
 
     @Autowired
     private CartService cartService;
@@ -38,67 +46,105 @@ public class OrderController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private CurrencyConversionService currencyConversionService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @Operation(
             summary = "Get user's orders",
             description = "Retrieve all orders placed by the currently authenticated user. " +
-                    "Returns order history with status, items, and amounts. Requires JWT authentication.",
+                    "Returns order history with status, items, and amounts. For long histories prefer /order/me/page. " +
+                    "Items carry a snapshot of what was bought; pass hydrate=true to also get the current product. " +
+                    "Requires JWT authentication.",
             tags = {"Orders"}
     )
     @GetMapping("/me")
-    public ResponseEntity<List<Order>> getAllOrders() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
+    public ResponseEntity<List<Order>> getAllOrders(
+            @Parameter(description = "Also attach the current product to every item", example = "false")
+            @RequestParam(defaultValue = "false") boolean hydrate,
+            CurrentUser currentUser) {
+        List<Order> allOrders = orderService.getAllOrdersByUserId(currentUser.getId());
+        if (hydrate) {
+            orderService.hydrate(allOrders);
+        }
+        return new ResponseEntity<>(allOrders, HttpStatus.OK);
+    }
 
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    @Operation(
+            summary = "Get user's orders page",
+            description = "Retrieve one page of the authenticated user's orders, newest first, without the order items. " +
+                    "Optionally filter by status and by date range. Pass the returned nextCursor as 'after' to get the next page. " +
+                    "Requires JWT authentication.",
+            tags = {"Orders"}
+    )
+    @GetMapping("/me/page")
+    public ResponseEntity<?> getOrderPage(
+            @Parameter(description = "Only orders with this status", example = "Paid")
+            @RequestParam(required = false) String status,
+            @Parameter(description = "Only orders placed at or after this time (ISO-8601)", example = "2024-01-01T00:00:00Z")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @Parameter(description = "Only orders placed before this time (ISO-8601)", example = "2024-02-01T00:00:00Z")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @Parameter(description = "ID of the last order on the previous page (omit for the first page)", example = "65def789ghi012345678")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Page size (1-" + OrderService.MAX_PAGE_SIZE + ")", example = "20")
+            @RequestParam(defaultValue = "20") int size,
+            CurrentUser currentUser) {
+
+        if (size < 1 || size > OrderService.MAX_PAGE_SIZE) {
+            return new ResponseEntity<>("Page size must be between 1 and " + OrderService.MAX_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+        if (after != null && !ObjectId.isValid(after)) {
+            return new ResponseEntity<>("Invalid cursor", HttpStatus.BAD_REQUEST);
         }
 
-        List<Order> allOrders = orderService.getAllOrdersByUserId(user.getId());
-        return new ResponseEntity<>(allOrders, HttpStatus.OK);
+        OrderPage page = orderService.getOrderPage(currentUser.getId(), status, from, to, after, size);
+        return new ResponseEntity<>(page, HttpStatus.OK);
     }
 
     @Operation(
             summary = "Place order from cart",
             description = "Create order from user's cart and initiate Stripe payment. " +
-                    "Order is created with 'Pending' status. Stock is validated but NOT deducted. " +
-                    "Returns Stripe checkout URL for payment. After successful payment, " +
+                    "Order is created with 'Pending' status and its stock is reserved for a limited time. " +
+                    "Returns Stripe checkout URL for payment (in asynchronous mode: 202 with the checkout status URL to poll). " +
+                    "After successful payment, " +
                     "order status updates to 'Paid' and stock is deducted via webhook. " +
                     "Cart is cleared after order creation. Requires JWT authentication.",
             tags = {"Orders"}
     )
     @PostMapping("/placeOrder")
-    public ResponseEntity<?> placeOrder() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
+    public ResponseEntity<?> placeOrder(
+            @Parameter(description = "Unique key per checkout attempt; retries with the same key return the first response",
+                    example = "3f1c2b9e-7d4a-4e1f-9c1a-2b7e5d6f8a90")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            CurrentUser currentUser) {
+        return idempotent(currentUser.getId() + ":placeOrder:", idempotencyKey, () -> checkoutCart(currentUser));
+    }
 
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    private ResponseEntity<String> checkoutCart(CurrentUser currentUser) {
+        if (!paymentService.isAvailable()) {
+            return new ResponseEntity<>("Payment provider unavailable, try again later", HttpStatus.SERVICE_UNAVAILABLE);
         }
 
         try {
-            Order order = orderService.placeOrderFromCart(user.getId());
-            double totalAmount = order.getTotalAmount();
-
-            double conversionRate = 87.50;
-            double amountInUSD = totalAmount / conversionRate;
-
+            Order order = orderService.placeOrderFromCart(currentUser.getId());
+            // Prices are stored in paise; Stripe gets minor units of the checkout currency
             ProductRequest productRequest = new ProductRequest();
             productRequest.setName("Order #" + order.getId());
-            productRequest.setAmount((long) (amountInUSD * 100));
-            productRequest.setCurrency("usd");
+            productRequest.setAmount(currencyConversionService.toCheckoutCurrency(order.getTotalAmount()));
+            productRequest.setCurrency(currencyConversionService.getCheckout());
             productRequest.setQuantity(1L);
+            productRequest.setExpiresAt(order.getReservedUntil().getTime() / 1000);
 
-            StripeResponse stripeResponse = paymentService.checkoutProducts(productRequest, order.getId());
-
-            if ("SUCCESS".equals(stripeResponse.getStatus())) {
-                return new ResponseEntity<>(stripeResponse.getSessionUrl(), HttpStatus.CREATED);
-            } else {
-                return new ResponseEntity<>(stripeResponse.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
-            }
-        } catch (Exception e) {
+            return startPayment(order, productRequest, currentUser.getId());
+        } catch (CheckoutRejectedException e) {
             return new ResponseEntity<>("Order placement failed: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            // Database/cache outage or a concurrent cart update: worth retrying, so never stored as the final answer
+            log.error("Order placement failed", e);
+            return new ResponseEntity<>("Order placement failed, please retry", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
@@ -106,8 +152,9 @@ public class OrderController {
             summary = "Place single product order",
             description = "Create order for a single product with specified quantity and initiate payment. " +
                     "Useful for 'Buy Now' functionality. Order created with 'Pending' status. " +
-                    "Stock validated but NOT deducted until payment completion. " +
-                    "Returns Stripe checkout URL. Requires JWT authentication.",
+                    "Stock is reserved until payment completes or the reservation expires. " +
+                    "Returns Stripe checkout URL (in asynchronous mode: 202 with the checkout status URL to poll). " +
+                    "Requires JWT authentication.",
             tags = {"Orders"}
     )
     @PostMapping("/placeSingleOrder/{productId}/{quantity}")
@@ -115,14 +162,20 @@ public class OrderController {
             @Parameter(description = "Product ID to order", required = true, example = "65abc123def456789012")
             @PathVariable String productId,
             @Parameter(description = "Quantity to order", required = true, example = "1")
-            @PathVariable int quantity) {
-
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
+            @PathVariable int quantity,
+            @Parameter(description = "Unique key per checkout attempt; retries with the same key return the first response",
+                    example = "3f1c2b9e-7d4a-4e1f-9c1a-2b7e5d6f8a90")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            CurrentUser currentUser) {
+
+        // The key is scoped to the product and quantity too, so reusing it for another purchase can't replay the wrong order
+        return idempotent(currentUser.getId() + ":placeSingleOrder:" + productId + ":" + quantity + ":", idempotencyKey,
+                () -> checkoutSingleProduct(currentUser, productId, quantity));
+    }
 
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    private ResponseEntity<String> checkoutSingleProduct(CurrentUser currentUser, String productId, int quantity) {
+        if (!paymentService.isAvailable()) {
+            return new ResponseEntity<>("Payment provider unavailable, try again later", HttpStatus.SERVICE_UNAVAILABLE);
         }
 
         try {
@@ -137,63 +190,128 @@ public class OrderController {
                 return new ResponseEntity<>("Not enough stock available!", HttpStatus.BAD_REQUEST);
             }
 
-            Order order = new Order();
-            order.setUserId(user.getId());
-            order.setStatus("Pending");
-            order.setOrderItems(new ArrayList<>());
-
-            OrderItem orderItem = new OrderItem();
-            orderItem.setProduct(product);
-            orderItem.setQuantity(quantity);
-            orderItem.setPriceAtOrder(product.getPrice());
-
-            order.getOrderItems().add(orderItem);
-            order.setTotalAmount(product.getPrice() * quantity);
-            orderService.saveOrder(order);
-
-            double conversionRate = 87.50;
-            double amountInUSD = order.getTotalAmount() / conversionRate;
+            // Reserves the stock, so two buyers can't both get the last unit
+            Order order = orderService.placeSingleOrder(currentUser.getId(), product, quantity);
 
+            // Stripe multiplies the unit amount by the quantity, so send the unit price (not the order total)
             ProductRequest productRequest = new ProductRequest();
             productRequest.setName("Order #" + order.getId() + " - " + product.getName());
-            productRequest.setAmount((long) (amountInUSD * 100));
-            productRequest.setCurrency("usd");
+            productRequest.setAmount(currencyConversionService.toCheckoutCurrency(order.getOrderItems().get(0).getPriceAtOrder()));
+            productRequest.setCurrency(currencyConversionService.getCheckout());
             productRequest.setQuantity((long) quantity);
+            productRequest.setExpiresAt(order.getReservedUntil().getTime() / 1000);
 
-            StripeResponse stripeResponse = paymentService.checkoutProducts(productRequest, order.getId());
+            return startPayment(order, productRequest, currentUser.getId());
+        } catch (CheckoutRejectedException e) {
+            return new ResponseEntity<>("Order placement failed: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            // Database/cache outage or a concurrent cart update: worth retrying, so never stored as the final answer
+            log.error("Order placement failed", e);
+            return new ResponseEntity<>("Order placement failed, please retry", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Sync mode: 201 with the Stripe checkout URL.
+     * Async mode: 202 with the URL to poll (also in the Location header); the session is created in the background.
+     * If no session can be created the order is marked "Payment Failed" so its stock is released.
+     */
+    private ResponseEntity<String> startPayment(Order order, ProductRequest productRequest, String userId) {
+        try {
+            if (paymentService.isAsync()) {
+                paymentService.startCheckout(productRequest, order.getId(), userId);
+                String statusUrl = "/order/id/" + order.getId() + "/checkout";
+                return ResponseEntity.accepted().location(URI.create(statusUrl)).body(statusUrl);
+            }
 
+            StripeResponse stripeResponse = paymentService.checkoutProducts(productRequest, order.getId(), userId);
             if ("SUCCESS".equals(stripeResponse.getStatus())) {
+                orderService.attachCheckoutSession(order.getId(), stripeResponse.getSessionId(), stripeResponse.getSessionUrl());
                 return new ResponseEntity<>(stripeResponse.getSessionUrl(), HttpStatus.CREATED);
-            } else {
-                return new ResponseEntity<>(stripeResponse.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
             }
-        } catch (Exception e) {
-            return new ResponseEntity<>("Order placement failed: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+            orderService.markPaymentFailed(order.getId(), "Payment Failed"); // Don't hold stock for an unpayable order
+            return new ResponseEntity<>(stripeResponse.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        } catch (CheckoutUnavailableException e) {
+            orderService.markPaymentFailed(order.getId(), "Payment Failed");
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Runs a checkout request at most once per Idempotency-Key (requests without the header run as before).
+     * Final responses (success, or a 4xx that a retry would get again) are stored and replayed;
+     * server errors release the key so the client can retry with it.
+     */
+    private ResponseEntity<?> idempotent(String scope, String idempotencyKey, Supplier<ResponseEntity<String>> request) {
+        if (idempotencyKey == null) {
+            return request.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return new ResponseEntity<>(IDEMPOTENCY_KEY_HEADER + " must be 1-" + MAX_IDEMPOTENCY_KEY_LENGTH + " characters",
+                    HttpStatus.BAD_REQUEST);
+        }
+
+        String key = scope + idempotencyKey;
+        Optional<ResponseEntity<String>> previous = idempotencyService.begin(key);
+        if (previous.isPresent()) {
+            return previous.get(); // Duplicate: no MongoDB or Stripe work at all
+        }
+
+        ResponseEntity<String> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            idempotencyService.abandon(key);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            idempotencyService.abandon(key);
+        } else {
+            idempotencyService.complete(key, response);
         }
+        return response;
     }
 
     @Operation(
             summary = "Get order by ID",
             description = "Retrieve details of a specific order. User can only access their own orders. " +
-                    "Requires JWT authentication.",
+                    "Pass hydrate=true to also get the current product of every item. Requires JWT authentication.",
             tags = {"Orders"}
     )
     @GetMapping("/id/{orderId}")
     public ResponseEntity<Order> getOrderById(
             @Parameter(description = "Order ID", required = true, example = "65def789ghi012345678")
-            @PathVariable String orderId) {
-
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
+            @PathVariable String orderId,
+            @Parameter(description = "Also attach the current product to every item", example = "false")
+            @RequestParam(defaultValue = "false") boolean hydrate,
+            CurrentUser currentUser) {
 
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        Optional<Order> order = orderService.getById(orderId);
+        if (order.isPresent() && order.get().getUserId().equals(currentUser.getId())) {
+            if (hydrate) {
+                orderService.hydrate(List.of(order.get()));
+            }
+            return new ResponseEntity<>(order.get(), HttpStatus.OK);
         }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    @Operation(
+            summary = "Get checkout status",
+            description = "Poll the checkout of an order placed in asynchronous mode (the URL returned by placeOrder). " +
+                    "CREATING means the payment session is still being created; READY comes with the checkout URL. " +
+                    "Once checkout is over the order status is returned (e.g. Paid, Payment Failed). Requires JWT authentication.",
+            tags = {"Orders"}
+    )
+    @GetMapping("/id/{orderId}/checkout")
+    public ResponseEntity<CheckoutStatus> getCheckoutStatus(
+            @Parameter(description = "Order ID", required = true, example = "65def789ghi012345678")
+            @PathVariable String orderId,
+            CurrentUser currentUser) {
 
         Optional<Order> order = orderService.getById(orderId);
-        if (order.isPresent() && order.get().getUserId().equals(user.getId())) {
-            return new ResponseEntity<>(order.get(), HttpStatus.OK);
+        if (order.isPresent() && order.get().getUserId().equals(currentUser.getId())) {
+            return new ResponseEntity<>(CheckoutStatus.of(order.get()), HttpStatus.OK);
         }
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
@@ -207,18 +325,11 @@ public class OrderController {
     @DeleteMapping("/id/{orderId}")
     public ResponseEntity<?> deleteOrderById(
             @Parameter(description = "Order ID to delete", required = true, example = "65def789ghi012345678")
-            @PathVariable String orderId) {
-
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
-
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            @PathVariable String orderId,
+            CurrentUser currentUser) {
 
         Optional<Order> order = orderService.getById(orderId);
-        if (order.isPresent() && order.get().getUserId().equals(user.getId())) {
+        if (order.isPresent() && order.get().getUserId().equals(currentUser.getId())) {
             orderService.deleteById(orderId);
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
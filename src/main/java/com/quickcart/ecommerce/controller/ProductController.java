@@ -1,10 +1,12 @@
 package com.quickcart.ecommerce.controller;
 
+import com.quickcart.ecommerce.dto.ProductPage;
 import com.quickcart.ecommerce.entity.Product;
 import com.quickcart.ecommerce.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,7 +26,7 @@ public class ProductController {
     @Operation(
             summary = "Get all products",
             description = "Retrieve list of all available products. This is a public endpoint - no authentication required. " +
-                    "Products are cached in Redis for better performance.",
+                    "Products are cached in Redis for better performance. For large catalogs prefer /product/page.",
             tags = {"Products"}
     )
     @GetMapping("/getAllProducts")
@@ -36,6 +38,28 @@ public class ProductController {
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    @Operation(
+            summary = "Get products page",
+            description = "Retrieve one page of products ordered by ID. Pass the returned nextCursor as 'after' to get the next page. " +
+                    "This is a public endpoint. Each page is cached in Redis.",
+            tags = {"Products"}
+    )
+    @GetMapping("/page")
+    public ResponseEntity<?> getProductPage(
+            @Parameter(description = "ID of the last product on the previous page (omit for the first page)", example = "65abc123def456789012")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Page size (1-" + ProductService.MAX_PAGE_SIZE + ")", example = "20")
+            @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > ProductService.MAX_PAGE_SIZE) {
+            return new ResponseEntity<>("Page size must be between 1 and " + ProductService.MAX_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+        if (after != null && !ObjectId.isValid(after)) {
+            return new ResponseEntity<>("Invalid cursor", HttpStatus.BAD_REQUEST);
+        }
+        ProductPage page = productService.getProductPage(after, size);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
     @Operation(
             summary = "Get product by ID",
             description = "Retrieve detailed information about a specific product. This is a public endpoint. " +
@@ -1,6 +1,10 @@
 package com.quickcart.ecommerce.controller;
 
 import com.quickcart.ecommerce.entity.UserEntry;
+import com.quickcart.ecommerce.security.AuthenticatedUser;
+import com.quickcart.ecommerce.security.CurrentUser;
+import com.quickcart.ecommerce.security.LoginThrottle;
+import com.quickcart.ecommerce.security.TooManyRequestsException;
 import com.quickcart.ecommerce.service.EmailService;
 import com.quickcart.ecommerce.service.UserService;
 import com.quickcart.ecommerce.utills.JwtUtil;
@@ -12,17 +16,17 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+
 @RestController
 @RequestMapping("/user")
 @Slf4j
@@ -35,15 +39,15 @@ public class UserController {
     @Autowired
     private AuthenticationManager authenticationManager;
 
-    @Autowired
-    private UserDetailsService userDetailsService;
-
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private LoginThrottle loginThrottle;
+
     @Operation(
             summary = "Register new user",
             description = "Create a new user account. This is a public endpoint. " +
@@ -76,6 +80,8 @@ public class UserController {
             String body = "Dear " + newUser.getUsername() + ",\n\nThank you for registering with QuickCart!";
             emailService.sendEmail(newUser.getEmail(), subject, body);
             return new ResponseEntity<>("User registered successfully", HttpStatus.CREATED);
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             log.error("Error during signup", e);
             return new ResponseEntity<>("User registration failed", HttpStatus.BAD_REQUEST);
@@ -104,14 +110,21 @@ public class UserController {
                             )
                     )
             )
-            @RequestBody UserEntry newUser) {
+            @RequestBody UserEntry newUser,
+            HttpServletRequest request) {
         try {
-            authenticationManager.authenticate(
+            // Throttled before the password is checked, so refused attempts cost no hashing
+            loginThrottle.checkAttempt(request.getRemoteAddr(), newUser.getUsername());
+            // The authenticated principal already holds the user ID and roles: no second lookup
+            Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(newUser.getUsername(), newUser.getPassword()));
-            UserDetails userDetails = userDetailsService.loadUserByUsername(newUser.getUsername());
-            String jwt = jwtUtil.generateToken(userDetails.getUsername());
+            loginThrottle.recordSuccess(newUser.getUsername());
+            String jwt = jwtUtil.generateToken((AuthenticatedUser) authentication.getPrincipal());
             return new ResponseEntity<>(jwt, HttpStatus.OK);
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
         } catch (AuthenticationException e) {
+            loginThrottle.recordFailure(newUser.getUsername());
             log.error("Invalid login attempt", e);
             return new ResponseEntity<>("Incorrect username or password", HttpStatus.BAD_REQUEST);
         }
@@ -124,10 +137,8 @@ public class UserController {
             tags = {"Authentication & User Management"}
     )
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
+    public ResponseEntity<?> getCurrentUser(CurrentUser currentUser) {
+        UserEntry user = currentUser.load().orElse(null);
         if (user != null) {
             return new ResponseEntity<>(user, HttpStatus.OK);
         }
@@ -155,10 +166,9 @@ public class UserController {
                             )
                     )
             )
-            @RequestBody UserEntry newEntry) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry userInDb = userService.findByUsername(username).orElse(null);
+            @RequestBody UserEntry newEntry,
+            CurrentUser currentUser) {
+        UserEntry userInDb = currentUser.load().orElse(null);
         if (userInDb != null) {
             if (newEntry.getUsername() != null && !newEntry.getUsername().isEmpty()) {
                 userInDb.setUsername(newEntry.getUsername());
@@ -195,10 +205,9 @@ public class UserController {
                             )
                     )
             )
-            @RequestBody UserEntry updatedUser) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry userInDb = userService.findByUsername(username).orElse(null);
+            @RequestBody UserEntry updatedUser,
+            CurrentUser currentUser) {
+        UserEntry userInDb = currentUser.load().orElse(null);
         if (userInDb != null) {
             if (updatedUser.getAddress() != null && !updatedUser.getAddress().isEmpty()) {
                 userInDb.setAddress(updatedUser.getAddress());
@@ -211,4 +220,10 @@ public class UserController {
         }
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<String> tooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+}
@@ -1,11 +1,10 @@
 package com.quickcart.ecommerce.controller;
 
 import com.quickcart.ecommerce.entity.Product;
-import com.quickcart.ecommerce.entity.UserEntry;
 import com.quickcart.ecommerce.entity.Wishlist;
 import com.quickcart.ecommerce.service.ProductService;
 import com.quickcart.ecommerce.service.WishlistService;
-import com.quickcart.ecommerce.service.UserService;
+import com.quickcart.ecommerce.security.CurrentUser;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -13,8 +12,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Optional;
@@ -28,9 +25,6 @@ public class WishlistController {
     @Autowired
     private WishlistService wishlistService;
 
-    @Autowired
-    private UserService userService;
-
     @Autowired
     private ProductService productService;
 
@@ -42,14 +36,8 @@ public class WishlistController {
             tags = {"Wishlist"}
     )
     @GetMapping("/me")
-    public ResponseEntity<Wishlist> getWishlistByUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        var user = userService.findByUsername(username).orElse(null);
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        Optional<Wishlist> wishlist = wishlistService.getWishlistByUserId(user.getId());
+    public ResponseEntity<Wishlist> getWishlistByUserId(CurrentUser currentUser) {
+        Optional<Wishlist> wishlist = wishlistService.getWishlistByUserId(currentUser.getId());
         return wishlist.map(ResponseEntity::ok).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
@@ -63,21 +51,15 @@ public class WishlistController {
     @PostMapping("/add/{productId}")
     public ResponseEntity<?> addProductToWishlist(
             @Parameter(description = "Product ID to add to wishlist", required = true, example = "65abc123def456789012")
-            @PathVariable String productId) {
-
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            @PathVariable String productId,
+            CurrentUser currentUser) {
 
         Product product = productService.getById(productId).orElse(null);
         if (product == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        wishlistService.addProductToWishlist(user.getId(), product);
+        wishlistService.addProductToWishlist(currentUser.getId(), product);
         return new ResponseEntity<>(HttpStatus.CREATED);
     }
 
@@ -91,16 +73,10 @@ public class WishlistController {
     @DeleteMapping("/remove/{productId}")
     public ResponseEntity<?> removeProductFromWishlist(
             @Parameter(description = "Product ID to remove from wishlist", required = true, example = "65abc123def456789012")
-            @PathVariable String productId) {
-
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        var user = userService.findByUsername(username).orElse(null);
-        if (user == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            @PathVariable String productId,
+            CurrentUser currentUser) {
 
-        wishlistService.removeProductFromWishlist(user.getId(), productId);
+        wishlistService.removeProductFromWishlist(currentUser.getId(), productId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.quickcart.ecommerce.dto;
+
+import com.quickcart.ecommerce.entity.Order;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "Progress of an order's checkout session (poll this after an asynchronous checkout)")
+public class CheckoutStatus {
+
+    public static final String CREATING = "CREATING";
+    public static final String READY = "READY";
+
+    @Schema(description = "Order ID", example = "65def789ghi012345678")
+    private String orderId;
+
+    @Schema(description = "CREATING (session not ready yet), READY (pay at checkoutUrl), " +
+            "or the order status once checkout is over, e.g. Paid, Payment Failed, Expired", example = "READY")
+    private String status;
+
+    @Schema(description = "Stripe Checkout URL, once READY", example = "https://checkout.stripe.com/c/pay/cs_test_a1b2c3")
+    private String checkoutUrl;
+
+    public static CheckoutStatus of(Order order) {
+        CheckoutStatus checkoutStatus = new CheckoutStatus();
+        checkoutStatus.setOrderId(order.getId());
+        if ("Pending".equals(order.getStatus())) {
+            checkoutStatus.setStatus(order.getCheckoutUrl() == null ? CREATING : READY);
+            checkoutStatus.setCheckoutUrl(order.getCheckoutUrl());
+        } else {
+            checkoutStatus.setStatus(order.getStatus());
+        }
+        return checkoutStatus;
+    }
+}
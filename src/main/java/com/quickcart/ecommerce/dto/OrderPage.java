@@ -0,0 +1,28 @@
+package com.quickcart.ecommerce.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "One page of orders, newest first (keyset pagination)")
+public class OrderPage {
+
+    @Schema(description = "Orders on this page, newest first")
+    @Builder.Default
+    private List<OrderSummary> items = new ArrayList<>();
+
+    @Schema(description = "Pass this as 'after' to fetch the next page. Null on the last page.", example = "65def789ghi012345678")
+    private String nextCursor;
+
+    @Schema(description = "Whether older orders exist after this page", example = "true")
+    private boolean hasMore;
+}
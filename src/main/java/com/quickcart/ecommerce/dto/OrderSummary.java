@@ -0,0 +1,31 @@
+package com.quickcart.ecommerce.dto;
+
+import com.quickcart.ecommerce.utills.Rupees;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@Schema(description = "Order row for list views: no items, just what a history/admin table needs")
+public class OrderSummary {
+
+    @Schema(description = "Order ID", example = "65def789ghi012345678")
+    private String id;
+
+    @Schema(description = "ID of the user who placed the order", example = "65abc123def456789012")
+    private String userId;
+
+    @Schema(description = "Order status", example = "Paid")
+    private String status;
+
+    @Schema(description = "Total amount in INR (stored as paise)", type = "number", example = "1499.00")
+    @Rupees
+    private long totalAmount;
+
+    @Schema(description = "Number of order lines", example = "3")
+    private int itemCount;
+
+    @Schema(description = "When the order was placed (taken from the order ID)")
+    private Date createdAt;
+}
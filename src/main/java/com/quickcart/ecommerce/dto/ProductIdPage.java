@@ -0,0 +1,21 @@
+package com.quickcart.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the "productPages" cache actually stores: only the IDs on a page.
+ * Product bodies come from the "products" cache, so a stock or price change never invalidates a page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductIdPage {
+    private List<String> ids = new ArrayList<>();
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,29 @@
+package com.quickcart.ecommerce.dto;
+
+import com.quickcart.ecommerce.entity.Product;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "One page of the product catalog (keyset pagination)")
+public class ProductPage {
+
+    @Schema(description = "Products on this page, ordered by ID")
+    @Builder.Default
+    private List<Product> items = new ArrayList<>();
+
+    @Schema(description = "Pass this as 'after' to fetch the next page. Null on the last page.", example = "65abc123def456789012")
+    private String nextCursor;
+
+    @Schema(description = "Whether more products exist after this page", example = "true")
+    private boolean hasMore;
+}
@@ -1,8 +1,8 @@
 package com.quickcart.ecommerce.entity;
 
+import com.quickcart.ecommerce.utills.Rupees;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
@@ -14,8 +14,9 @@ public class Cart {
 
     @Id
     private String id; // Cart ID
-    private String userId; // ID of the user who owns the cart
-    private double totalPrice; // Total price of items in the cart
+    private String userId; // ID of the user who owns the cart (one cart per user, unique index built by CartDedupMigration)
+    @Rupees
+    private long totalPrice; // Total price of items in the cart, in paise (rupees in the API)
 
     private List<CartItem> items = new ArrayList<>(); // List of items in the cart
 }
\ No newline at end of file
@@ -1,15 +1,18 @@
 package com.quickcart.ecommerce.entity;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
-import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @Document(collection = "cart_items")
 public class CartItem {
 
-    @DBRef
-    private Product product; // Reference to the product
+    private ProductSnapshot product; // Embedded copy of the product (no @DBRef lookup when reading the cart)
     private int quantity; // Quantity of the product
-}
\ No newline at end of file
+
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Product liveProduct; // Current product, only filled in when asked for (?hydrate=true)
+}
@@ -1,20 +1,33 @@
 package com.quickcart.ecommerce.entity;
 
+import com.quickcart.ecommerce.utills.Rupees;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 @Document(collection = "ordersData")
+@CompoundIndexes({
+        @CompoundIndex(name = "userId_id", def = "{'userId': 1, '_id': -1}"), // A user's order history, newest first
+        @CompoundIndex(name = "status_id", def = "{'status': 1, '_id': -1}")  // Admin list filtered by status
+})
 @Data
 public class Order {
     @Id
     private String id;
     private String userId; // ID of the user who placed the order
-    private String status; // e.g., "Pending", "Paid", "Shipped", "Delivered", "Cancelled"
-    private double totalAmount; // Total amount for the order
+    private String status; // e.g., "Pending", "Paying" (payment being recorded), "Paid", "Needs Review", "Shipped", "Delivered", "Cancelled"
+    @Rupees
+    private long totalAmount; // Total amount for the order, in paise (rupees in the API)
+    private Date reservedUntil; // Stock is held for this order until then (see StockReservation)
+    private Date payingSince; // When a payment delivery claimed the order ("Paying"); stuck claims are swept
+    private String checkoutSessionId; // Stripe Checkout session, set once it has been created
+    private String checkoutUrl; // Where the customer pays; null while the session is still being created
 
     // UPDATED: Now using OrderItem instead of just Product
     // This stores both product AND quantity information
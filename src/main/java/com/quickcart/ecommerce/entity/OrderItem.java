@@ -1,12 +1,18 @@
 package com.quickcart.ecommerce.entity;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.quickcart.ecommerce.utills.Rupees;
 import lombok.Data;
-import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.annotation.Transient;
 
 @Data
 public class OrderItem {
-    @DBRef
-    private Product product; // Reference to the product
+    private ProductSnapshot product; // What was bought, as it was at order time
     private int quantity; // Quantity ordered
-    private double priceAtOrder; // Price at the time of order (in case price changes later)
-}
\ No newline at end of file
+    @Rupees
+    private long priceAtOrder; // Unit price in paise at the time of order (in case price changes later)
+
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Product liveProduct; // Current product, only filled in when asked for (?hydrate=true)
+}
@@ -1,5 +1,6 @@
 package com.quickcart.ecommerce.entity;
 
+import com.quickcart.ecommerce.utills.Rupees;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
@@ -23,8 +24,9 @@ public class Product implements Serializable {
     @Schema(description = "Detailed product description", example = "Premium quality wireless headphones with active noise cancellation and 30-hour battery life", maxLength = 2000)
     private String description;
 
-    @Schema(description = "Product price in INR", example = "4999.99", required = true, minimum = "0", exclusiveMinimum = true)
-    private double price;
+    @Schema(description = "Product price in INR (stored as paise)", type = "number", example = "4999.99", required = true, minimum = "0", exclusiveMinimum = true)
+    @Rupees
+    private long price;
 
     @Schema(description = "Available stock quantity", example = "50", required = true, minimum = "0")
     private int stock;
@@ -8,4 +8,5 @@ public class ProductRequest {
     private long amount; // Amount in cents
     private long quantity; // Quantity of the product
     private String currency; // Currency code (e.g., "usd")
+    private Long expiresAt; // Epoch seconds after which the checkout link stops working (optional)
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.quickcart.ecommerce.entity;
+
+import com.quickcart.ecommerce.utills.Rupees;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The few product fields a cart or order line needs, embedded in the line itself.
+ * Reading a cart or an order is then ONE document fetch (no @DBRef lookup per line),
+ * and an order keeps showing what was bought even if the product changes later.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Product details copied into a cart/order line")
+public class ProductSnapshot {
+
+    @Schema(description = "Product ID", example = "65abc123def456789012")
+    private String id;
+
+    @Schema(description = "Product name at the time it was added", example = "Wireless Bluetooth Headphones")
+    private String name;
+
+    @Schema(description = "Unit price in INR (stored as paise)", type = "number", example = "4999.99")
+    @Rupees
+    private long unitPrice;
+
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(product.getId(), product.getName(), product.getPrice());
+    }
+}
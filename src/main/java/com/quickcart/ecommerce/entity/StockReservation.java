@@ -0,0 +1,35 @@
+package com.quickcart.ecommerce.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * One reserved order line. The row is written BEFORE the stock is taken, so an ACTIVE row always covers
+ * stock that may be held; it becomes COMMITTED when the payment succeeds, or RELEASING -> RELEASED
+ * (stock given back in between) when it expires or fails.
+ */
+@Document(collection = "stockReservations")
+@CompoundIndex(name = "status_expiresAt", def = "{'status': 1, 'expiresAt': 1}") // Used by the sweeper
+@Data
+public class StockReservation {
+
+    public static final String ACTIVE = "ACTIVE";
+    public static final String COMMITTED = "COMMITTED";
+    public static final String RELEASING = "RELEASING"; // Claimed for release, stock not confirmed back yet
+    public static final String RELEASED = "RELEASED";
+
+    @Id
+    private String id;
+    @Indexed
+    private String orderId;
+    private String productId;
+    private int quantity;
+    private String status;
+    private Date expiresAt;
+    private Date releasingAt; // When it was claimed for release; the sweeper finishes releases left behind
+}
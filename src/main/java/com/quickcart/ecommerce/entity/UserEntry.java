@@ -1,15 +1,12 @@
 package com.quickcart.ecommerce.entity;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.List;
 
 @Document(collection = "usersData")
@@ -41,13 +38,5 @@ public class UserEntry implements Serializable {
     @Schema(description = "User roles/permissions", example = "[\"USER\"]", accessMode = Schema.AccessMode.READ_ONLY)
     private List<String> roles;
 
-    @DBRef
-    @JsonIgnore
-    @Schema(hidden = true)
-    private List<Cart> carts = new ArrayList<>();
-
-    @DBRef
-    @JsonIgnore
-    @Schema(hidden = true)
-    private List<Order> orders = new ArrayList<>();
+    // A user's cart and orders are NOT kept here: they are looked up by userId (indexed) in cartsData / ordersData
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.quickcart.ecommerce.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * A verified Stripe webhook waiting to be (or already) processed. See WebhookQueueService.
+ * QUEUED -> PROCESSING -> DONE, back to QUEUED for a retry, or DEAD after too many failures.
+ */
+@Document(collection = "webhookEvents")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}"), // Used by the poller
+        @CompoundIndex(name = "orderId_id", def = "{'orderId': 1, '_id': 1}") // Older events of the same order go first
+})
+@Data
+public class WebhookEvent {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String PROCESSING = "PROCESSING";
+    public static final String DONE = "DONE";
+    public static final String DEAD = "DEAD";
+
+    @Id
+    private String id; // ObjectId: increases with arrival time
+    @Indexed(unique = true, sparse = true)
+    private String eventId; // Stripe event ID (evt_...): one record per event, redeliveries are rejected
+    private String type;
+    private String orderId; // From the session metadata, null for events without an order
+    private String objectId; // data.object.id, e.g. the checkout session
+    private String paymentStatus; // data.object.payment_status
+    private String payload; // Raw JSON as received (kept for the dead-letter view and for re-reading old records)
+    private String status;
+    private int attempts;
+    private Date receivedAt;
+    private Date nextAttemptAt;
+    private Date lockedUntil; // While PROCESSING: after this another node may take the event over
+    private String lastError;
+    @Indexed(expireAfterSeconds = 7 * 24 * 60 * 60)
+    private Date doneAt; // Processed events are deleted a week later (Stripe stops redelivering after 3 days); DEAD ones are kept
+}
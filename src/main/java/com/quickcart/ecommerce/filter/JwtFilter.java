@@ -1,11 +1,12 @@
 package com.quickcart.ecommerce.filter;
 
+import com.quickcart.ecommerce.security.AuthenticatedUser;
+import com.quickcart.ecommerce.security.UserPrincipalCache;
 import com.quickcart.ecommerce.utills.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -17,31 +18,37 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 
+/**
+ * Authenticates "Bearer" requests from the verified token alone: user ID and roles come from its claims,
+ * so no database lookup happens per request.
+ * With security.jwt.fresh-principal=true (and for old tokens without claims) the user is read through
+ * {@link UserPrincipalCache} instead, i.e. at most every few seconds per user.
+ */
 @Component
 public class JwtFilter extends OncePerRequestFilter {
     @Autowired
-    private UserDetailsService userDetailsService;
+    private UserPrincipalCache userPrincipalCache;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Value("${security.jwt.fresh-principal:false}")
+    private boolean freshPrincipal;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
         String authorizationHeader = request.getHeader("Authorization");
-        String username = null;
-        String jwt = null;
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtUtil.extractUsername(jwt);
-        }
-        if (username != null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(jwt)) {
-                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            AuthenticatedUser user = jwtUtil.parseUser(authorizationHeader.substring(7));
+            if (user != null && (freshPrincipal || user.getId() == null)) {
+                user = userPrincipalCache.get(user.getUsername());
+            }
+            if (user != null) {
+                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
                 auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(auth);
             }
         }
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.quickcart.ecommerce.migration;
+
+import com.quickcart.ecommerce.entity.Cart;
+import com.quickcart.ecommerce.entity.CartItem;
+import com.quickcart.ecommerce.utills.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One-off migration: the old find-then-save in addProductToCart could create two carts for one user.
+ * Carts are now looked up (and upserted) by userId, so they must be unique before the index is built.
+ *
+ * LOGIC:
+ * 1. Runs after the snapshot migration, so every line already embeds its product.
+ * 2. Groups carts by userId; for each user with several, the oldest cart is kept and the others'
+ *    lines are merged into it (same product: quantities add up at the kept line's price).
+ * 3. totalPrice is recomputed from the merged lines, the extra carts are deleted.
+ * 4. Only then is the unique userId index created (it is NOT declared with @Indexed, because
+ *    auto-index-creation runs before any migration and would fail on the duplicates).
+ */
+@Component
+@Slf4j
+@Order(4)
+@ConditionalOnProperty(name = "migration.cart-dedup.enabled", havingValue = "true", matchIfMissing = true)
+public class CartDedupMigration implements Migration {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void migrate() {
+        List<Document> duplicates = mongoTemplate.aggregate(Aggregation.newAggregation(
+                        Aggregation.group("userId").count().as("count"),
+                        Aggregation.match(Criteria.where("count").gt(1))),
+                Cart.class, Document.class).getMappedResults();
+
+        for (Document duplicate : duplicates) {
+            merge(duplicate.getString("_id"));
+        }
+        if (!duplicates.isEmpty()) {
+            log.info("Merged duplicate carts of {} users", duplicates.size());
+        }
+
+        // Same name as the former @Indexed index, so existing deployments see no change
+        mongoTemplate.indexOps(Cart.class)
+                .ensureIndex(new Index().on("userId", Sort.Direction.ASC).unique().named("userId"));
+    }
+
+    private void merge(String userId) {
+        List<Cart> carts = mongoTemplate.find(
+                Query.query(Criteria.where("userId").is(userId)).with(Sort.by("_id")), Cart.class);
+        if (carts.size() < 2) {
+            return; // Merged by another node in the meantime
+        }
+        Cart kept = carts.get(0);
+        for (Cart other : carts.subList(1, carts.size())) {
+            for (CartItem item : other.getItems()) {
+                addLine(kept, item);
+            }
+        }
+        long total = 0;
+        for (CartItem item : kept.getItems()) {
+            total = Money.add(total, Money.lineTotal(item.getProduct().getUnitPrice(), item.getQuantity()));
+        }
+        kept.setTotalPrice(total);
+
+        mongoTemplate.save(kept);
+        mongoTemplate.remove(Query.query(Criteria.where("userId").is(userId).and("_id").ne(kept.getId())), Cart.class);
+    }
+
+    private static void addLine(Cart cart, CartItem item) {
+        for (CartItem line : cart.getItems()) {
+            if (Objects.equals(line.getProduct().getId(), item.getProduct().getId())) {
+                line.setQuantity(line.getQuantity() + item.getQuantity());
+                return;
+            }
+        }
+        cart.getItems().add(item);
+    }
+}
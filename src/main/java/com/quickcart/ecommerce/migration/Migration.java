@@ -0,0 +1,10 @@
+package com.quickcart.ecommerce.migration;
+
+/**
+ * A data migration run once at startup by {@link MigrationRunner}, in @Order order.
+ * It must be safe to run again: it only touches documents that are still in the old shape.
+ */
+public interface Migration {
+
+    void migrate();
+}
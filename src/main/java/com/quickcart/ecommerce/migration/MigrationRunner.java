@@ -0,0 +1,35 @@
+package com.quickcart.ecommerce.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs every {@link Migration} once all beans exist but before the web server accepts requests.
+ * Later migrations may rely on earlier ones (e.g. snapshots need prices already in paise),
+ * so the first failure stops the rest; everything is retried on the next start.
+ */
+@Component
+@Slf4j
+public class MigrationRunner implements SmartInitializingSingleton {
+
+    @Autowired(required = false)
+    private List<Migration> migrations = new ArrayList<>(); // Sorted by @Order
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (Migration migration : migrations) {
+            try {
+                migration.migrate();
+            } catch (RuntimeException e) {
+                log.error("{} failed, it and the following migrations will retry on next start: {}",
+                        migration.getClass().getSimpleName(), e.getMessage());
+                return;
+            }
+        }
+    }
+}
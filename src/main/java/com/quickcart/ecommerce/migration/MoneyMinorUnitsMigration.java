@@ -0,0 +1,94 @@
+package com.quickcart.ecommerce.migration;
+
+import com.quickcart.ecommerce.entity.Cart;
+import com.quickcart.ecommerce.entity.Order;
+import com.quickcart.ecommerce.entity.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-off migration: money used to be stored as double rupees, it is now a long in paise.
+ *
+ * LOGIC:
+ * 1. One pipeline update per collection converts every field still stored as a double:
+ *    round(value * 100) as a long. Documents already converted are not matched (their fields are longs).
+ * 2. Cached products still hold the old values, so the product caches are cleared if anything changed.
+ * Runs first: the other migrations read products through the entity, which now expects paise.
+ */
+@Component
+@Slf4j
+@org.springframework.core.annotation.Order(1) // Fully qualified: clashes with the Order entity
+@ConditionalOnProperty(name = "migration.money-minor-units.enabled", havingValue = "true", matchIfMissing = true)
+public class MoneyMinorUnitsMigration implements Migration {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Override
+    public void migrate() {
+        long products = convertField(Product.class, "price");
+        long carts = convertField(Cart.class, "totalPrice");
+
+        Document orderItems = new Document("$map", new Document()
+                .append("input", new Document("$ifNull", List.of("$orderItems", List.of())))
+                .append("as", "i")
+                .append("in", new Document("$mergeObjects", List.of("$$i",
+                        new Document("priceAtOrder", toMinorIfDouble("$$i.priceAtOrder"))))));
+        long orders = mongoTemplate.updateMulti(
+                Query.query(new Criteria().orOperator(
+                        Criteria.where("totalAmount").type(1),
+                        Criteria.where("orderItems.priceAtOrder").type(1))),
+                AggregationUpdate.from(List.of(stage(new Document("$set", new Document()
+                        .append("totalAmount", toMinorIfDouble("$totalAmount"))
+                        .append("orderItems", orderItems))))),
+                Order.class).getModifiedCount();
+
+        if (products > 0) {
+            for (String cacheName : List.of("products", "allProducts", "wishlists")) {
+                cacheManager.getCache(cacheName).clear();
+            }
+        }
+        if (products + carts + orders > 0) {
+            log.info("Converted money to paise: {} products, {} carts, {} orders", products, carts, orders);
+        }
+    }
+
+    private long convertField(Class<?> type, String field) {
+        return mongoTemplate.updateMulti(
+                Query.query(Criteria.where(field).type(1)), // BSON type 1 = double
+                AggregationUpdate.from(List.of(stage(new Document("$set",
+                        new Document(field, toMinor("$" + field)))))),
+                type).getModifiedCount();
+    }
+
+    // {$toLong: {$round: [value * 100, 0]}}
+    private static Document toMinor(String path) {
+        return new Document("$toLong", new Document("$round",
+                List.of(new Document("$multiply", List.of(path, 100)), 0)));
+    }
+
+    private static Document toMinorIfDouble(String path) {
+        return new Document("$cond", List.of(
+                new Document("$eq", List.of(new Document("$type", path), "double")),
+                toMinor(path),
+                path));
+    }
+
+    private static AggregationOperation stage(Document stage) {
+        return context -> stage;
+    }
+}
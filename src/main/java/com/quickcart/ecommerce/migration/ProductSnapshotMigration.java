@@ -0,0 +1,125 @@
+package com.quickcart.ecommerce.migration;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.quickcart.ecommerce.entity.Product;
+import com.quickcart.ecommerce.entity.ProductSnapshot;
+import com.quickcart.ecommerce.repository.ProductRepository;
+import com.quickcart.ecommerce.utills.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-off migration: cart and order lines used to hold a @DBRef to the product,
+ * now they embed a {@link ProductSnapshot}. Rewrites every line that still holds a DBRef.
+ *
+ * LOGIC:
+ * 1. Runs once at startup (see MigrationRunner), after prices are in paise.
+ * 2. Reads the affected documents in batches and loads each batch's products with ONE $in query.
+ * 3. Orders keep the price they were bought at (priceAtOrder); carts take the current price.
+ * 4. Each document is rewritten only if it still holds DBRefs, so re-running it (or several nodes
+ *    starting together) is harmless. Turn it off with migration.product-snapshot.enabled=false once done.
+ */
+@Component
+@Slf4j
+@Order(3)
+@ConditionalOnProperty(name = "migration.product-snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class ProductSnapshotMigration implements Migration {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Override
+    public void migrate() {
+        migrate("cartsData", "items");
+        migrate("ordersData", "orderItems");
+    }
+
+    private void migrate(String collection, String itemsField) {
+        Document filter = new Document(itemsField + ".product.$ref", new Document("$exists", true));
+        List<Document> batch = new ArrayList<>();
+        int migrated = 0;
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(collection).find(filter)
+                .projection(new Document(itemsField, 1)).batchSize(BATCH_SIZE).iterator()) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == BATCH_SIZE) {
+                    migrated += rewrite(collection, itemsField, batch);
+                    batch.clear();
+                }
+            }
+        }
+        migrated += rewrite(collection, itemsField, batch);
+        if (migrated > 0) {
+            log.info("Migrated {} {} documents to embedded product snapshots", migrated, collection);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int rewrite(String collection, String itemsField, List<Document> documents) {
+        if (documents.isEmpty()) {
+            return 0;
+        }
+        Set<String> productIds = new HashSet<>();
+        for (Document document : documents) {
+            for (Document item : (List<Document>) document.get(itemsField, List.class)) {
+                if (item.get("product") instanceof DBRef) {
+                    productIds.add(((DBRef) item.get("product")).getId().toString());
+                }
+            }
+        }
+        Map<String, Product> products = new HashMap<>();
+        productRepository.findAllById(productIds).forEach(product -> products.put(product.getId(), product));
+
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        for (Document document : documents) {
+            List<Document> items = new ArrayList<>();
+            for (Document item : (List<Document>) document.get(itemsField, List.class)) {
+                if (item.get("product") instanceof DBRef) {
+                    item.put("product", mongoTemplate.getConverter().convertToMongoType(snapshot(item, products)));
+                }
+                items.add(item);
+            }
+            updates.add(new UpdateOneModel<>(
+                    new Document("_id", document.get("_id")).append(itemsField + ".product.$ref", new Document("$exists", true)),
+                    new Document("$set", new Document(itemsField, items))));
+        }
+        return mongoTemplate.getCollection(collection)
+                .bulkWrite(updates, new BulkWriteOptions().ordered(false))
+                .getModifiedCount();
+    }
+
+    private ProductSnapshot snapshot(Document item, Map<String, Product> products) {
+        String productId = ((DBRef) item.get("product")).getId().toString();
+        Product product = products.get(productId);
+        ProductSnapshot snapshot = product != null
+                ? ProductSnapshot.of(product)
+                : new ProductSnapshot(productId, null, 0); // Product deleted since: keep at least the ID
+        if (item.get("priceAtOrder") instanceof Double) { // Not converted to paise yet
+            snapshot.setUnitPrice(Money.fromMajor((Double) item.get("priceAtOrder")));
+        } else if (item.get("priceAtOrder") instanceof Number) {
+            snapshot.setUnitPrice(((Number) item.get("priceAtOrder")).longValue());
+        }
+        return snapshot;
+    }
+}
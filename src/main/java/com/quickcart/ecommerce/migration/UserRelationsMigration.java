@@ -0,0 +1,41 @@
+package com.quickcart.ecommerce.migration;
+
+import com.quickcart.ecommerce.entity.UserEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off migration: users used to embed growing @DBRef lists of their carts and orders,
+ * which were loaded (and resolved) on every authenticated request. Carts and orders are now
+ * found by userId, so the old arrays are dropped with ONE multi-document $unset.
+ * Safe to re-run: it only matches users that still have the arrays.
+ */
+@Component
+@Slf4j
+@Order(2)
+@ConditionalOnProperty(name = "migration.user-relations.enabled", havingValue = "true", matchIfMissing = true)
+public class UserRelationsMigration implements Migration {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void migrate() {
+        long modified = mongoTemplate.updateMulti(
+                Query.query(new Criteria().orOperator(
+                        Criteria.where("carts").exists(true),
+                        Criteria.where("orders").exists(true))),
+                new Update().unset("carts").unset("orders"),
+                UserEntry.class).getModifiedCount();
+        if (modified > 0) {
+            log.info("Removed embedded cart/order references from {} users", modified);
+        }
+    }
+}
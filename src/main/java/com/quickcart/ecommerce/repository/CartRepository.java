@@ -3,6 +3,6 @@ package com.quickcart.ecommerce.repository;
 import com.quickcart.ecommerce.entity.Cart;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface CartRepository extends MongoRepository<Cart, String> {
+public interface CartRepository extends MongoRepository<Cart, String>, CartRepositoryCustom {
     Cart findByUserId(String userId); // Custom query to find cart by user ID
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.quickcart.ecommerce.repository;
+
+import com.quickcart.ecommerce.entity.Cart;
+import com.quickcart.ecommerce.entity.ProductSnapshot;
+
+// Atomic cart mutations: each is a single find-and-modify that returns the updated cart
+public interface CartRepositoryCustom {
+
+    /**
+     * Adds quantity of a product to the user's cart (creating the cart or the line if needed)
+     * and keeps totalPrice up to date on the server. Concurrent adds never lose an update.
+     */
+    Cart addItem(String userId, ProductSnapshot product, int quantity);
+
+    /**
+     * Removes the product's line and subtracts it from totalPrice.
+     * Returns null if the cart doesn't exist or doesn't contain the product.
+     */
+    Cart removeItem(String userId, String productId);
+}
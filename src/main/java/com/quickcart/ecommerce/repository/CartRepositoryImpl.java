@@ -0,0 +1,130 @@
+package com.quickcart.ecommerce.repository;
+
+import com.quickcart.ecommerce.entity.Cart;
+import com.quickcart.ecommerce.entity.CartItem;
+import com.quickcart.ecommerce.entity.ProductSnapshot;
+import com.quickcart.ecommerce.utills.Money;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+/**
+ * LOGIC (add):
+ * 1. Line exists at the same unit price: positional $inc of its quantity and of totalPrice.
+ * 2. No line for this product yet: $push the line and $inc totalPrice (upsert creates the cart).
+ * 3. Line exists but the price changed since: one pipeline update that bumps the line, stores the
+ *    new snapshot and recomputes totalPrice on the server. Rare, so the O(n) recompute is fine.
+ * A step matches nothing when another request got there first; we then simply try the next one.
+ */
+public class CartRepositoryImpl implements CartRepositoryCustom {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public Cart addItem(String userId, ProductSnapshot product, int quantity) {
+        Document snapshot = (Document) mongoTemplate.getConverter().convertToMongoType(product);
+        Object productId = snapshot.get("_id"); // Stored form of the ID (ObjectId when it looks like one)
+        long amount = Money.lineTotal(product.getUnitPrice(), quantity);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Cart cart = incrementLine(userId, productId, product.getUnitPrice(), quantity, amount);
+            if (cart != null) {
+                return cart;
+            }
+            try {
+                return pushLine(userId, productId, product, quantity, amount);
+            } catch (DuplicateKeyException e) {
+                // The cart exists and already has this product (at another price), or was just created by a concurrent add
+            }
+            cart = repriceLine(userId, productId, snapshot, quantity);
+            if (cart != null) {
+                return cart;
+            }
+        }
+        throw new RuntimeException("Cart is being updated concurrently, please retry");
+    }
+
+    private Cart incrementLine(String userId, Object productId, long unitPrice, int quantity, long amount) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("userId").is(userId).and("items").elemMatch(
+                        Criteria.where("product._id").is(productId).and("product.unitPrice").is(unitPrice))),
+                new Update().inc("items.$.quantity", quantity).inc("totalPrice", amount),
+                FindAndModifyOptions.options().returnNew(true),
+                Cart.class);
+    }
+
+    private Cart pushLine(String userId, Object productId, ProductSnapshot product, int quantity, long amount) {
+        CartItem item = new CartItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("userId").is(userId).and("items.product._id").ne(productId)),
+                new Update().push("items", item).inc("totalPrice", amount),
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                Cart.class);
+    }
+
+    private Cart repriceLine(String userId, Object productId, Document snapshot, int quantity) {
+        Document isLine = new Document("$eq", List.of("$$i.product._id", productId));
+        Document items = map("$items", new Document("$cond", List.of(
+                isLine,
+                new Document("$mergeObjects", List.of("$$i", new Document()
+                        .append("product", new Document("$literal", snapshot))
+                        .append("quantity", new Document("$add", List.of("$$i.quantity", quantity))))),
+                "$$i")));
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("userId").is(userId).and("items.product._id").is(productId)),
+                AggregationUpdate.from(List.of(
+                        stage(new Document("$set", new Document("items", items))),
+                        stage(new Document("$set", new Document("totalPrice", totalOf("$items")))))),
+                FindAndModifyOptions.options().returnNew(true),
+                Cart.class);
+    }
+
+    @Override
+    public Cart removeItem(String userId, String productId) {
+        Object storedId = ((Document) mongoTemplate.getConverter()
+                .convertToMongoType(new ProductSnapshot(productId, null, 0))).get("_id");
+        Document removed = filter(new Document("$eq", List.of("$$i.product._id", storedId)));
+        Document kept = filter(new Document("$ne", List.of("$$i.product._id", storedId)));
+
+        // Both expressions of one $set see the cart as it was before the update
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("userId").is(userId).and("items.product._id").is(storedId)),
+                AggregationUpdate.from(List.of(stage(new Document("$set", new Document()
+                        .append("totalPrice", new Document("$subtract", List.of("$totalPrice", totalOf(removed))))
+                        .append("items", kept))))),
+                FindAndModifyOptions.options().returnNew(true),
+                Cart.class);
+    }
+
+    // Sum of unitPrice * quantity over the lines (paise)
+    private static Document totalOf(Object lines) {
+        Document lineTotals = map(lines, new Document("$multiply", List.of("$$i.product.unitPrice", "$$i.quantity")));
+        return new Document("$toLong", new Document("$sum", lineTotals));
+    }
+
+    private static Document map(Object input, Object in) {
+        return new Document("$map", new Document("input", input).append("as", "i").append("in", in));
+    }
+
+    private static Document filter(Document cond) {
+        return new Document("$filter", new Document("input", "$items").append("as", "i").append("cond", cond));
+    }
+
+    private static AggregationOperation stage(Document stage) {
+        return context -> stage;
+    }
+}
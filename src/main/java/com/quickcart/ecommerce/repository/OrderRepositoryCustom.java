@@ -0,0 +1,18 @@
+package com.quickcart.ecommerce.repository;
+
+import com.quickcart.ecommerce.dto.OrderSummary;
+
+import java.util.Date;
+import java.util.List;
+
+// Order list queries that need a projection, which derived queries can't express
+public interface OrderRepositoryCustom {
+
+    /**
+     * Newest-first order summaries older than the "after" cursor (an order ID), at most "limit" of them.
+     * Every filter is optional (null = no filter). Dates are turned into _id bounds (an ObjectId starts
+     * with its creation time), so the userId/status + _id indexes answer filter, sort and cursor together.
+     * Items are never read, so no product @DBRef is resolved.
+     */
+    List<OrderSummary> findSummaries(String userId, String status, Date from, Date to, String after, int limit);
+}
@@ -0,0 +1,68 @@
+package com.quickcart.ecommerce.repository;
+
+import com.quickcart.ecommerce.dto.OrderSummary;
+import com.quickcart.ecommerce.entity.Order;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.Date;
+import java.util.List;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<OrderSummary> findSummaries(String userId, String status, Date from, Date to, String after, int limit) {
+        Criteria criteria = new Criteria();
+        if (userId != null) {
+            criteria.and("userId").is(userId);
+        }
+        if (status != null) {
+            criteria.and("status").is(status);
+        }
+
+        // Upper bound is the tighter of the cursor and the "to" date
+        ObjectId upper = after != null ? new ObjectId(after) : null;
+        if (to != null && (upper == null || boundary(to).compareTo(upper) < 0)) {
+            upper = boundary(to);
+        }
+        if (upper != null || from != null) {
+            Criteria idRange = Criteria.where("_id");
+            if (upper != null) {
+                idRange.lt(upper);
+            }
+            if (from != null) {
+                idRange.gte(boundary(from));
+            }
+            criteria.andOperator(idRange);
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.sort(Sort.Direction.DESC, "_id"),
+                Aggregation.limit(limit),
+                Aggregation.project("userId", "status", "totalAmount")
+                        .and(ArrayOperators.Size.lengthOfArray(
+                                ConditionalOperators.ifNull("orderItems").then(List.of()))).as("itemCount"));
+
+        List<OrderSummary> summaries = mongoTemplate.aggregate(aggregation, Order.class, OrderSummary.class).getMappedResults();
+        for (OrderSummary summary : summaries) {
+            summary.setCreatedAt(new ObjectId(summary.getId()).getDate());
+        }
+        return summaries;
+    }
+
+    // The smallest ObjectId of that second: new ObjectId(Date) would fill the other bytes with this process's
+    // random machine/counter values, so a bound would cut through the orders created in that second at random
+    private static ObjectId boundary(Date date) {
+        return new ObjectId(String.format("%08x", date.getTime() / 1000) + "0000000000000000");
+    }
+}
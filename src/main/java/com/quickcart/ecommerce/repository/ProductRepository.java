@@ -1,8 +1,14 @@
 package com.quickcart.ecommerce.repository;
 
 import com.quickcart.ecommerce.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface ProductRepository extends MongoRepository<Product, String> {
-    // You can add custom query methods here if needed
-}
\ No newline at end of file
+import java.util.List;
+
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
+    // Keyset pagination on _id: first page, then everything after the last seen ID
+    List<Product> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+}
@@ -0,0 +1,30 @@
+package com.quickcart.ecommerce.repository;
+
+import java.util.Map;
+
+// Atomic stock operations that can't be expressed as derived queries
+public interface ProductRepositoryCustom {
+
+    /**
+     * Decrements stock for every product in ONE unordered bulk write.
+     * Each line is a conditional update (stock >= quantity), so concurrent orders can never drive stock negative.
+     * Returns how many lines were applied; anything less than quantities.size() means some lines had too little stock.
+     */
+    int deductStock(Map<String, Integer> quantities);
+
+    /**
+     * Single-line version: atomically takes quantity off one product if enough stock is left.
+     */
+    boolean deductStock(String productId, int quantity);
+
+    /**
+     * Gives stock back (e.g. released reservations) in one bulk write.
+     */
+    void restoreStock(Map<String, Integer> quantities);
+
+    /**
+     * Applies signed stock changes (negative = sold) without any stock check, in one bulk write.
+     * Used to flush hot SKU counters, whose stock checks already happened in memory.
+     */
+    void applyStockDeltas(Map<String, Integer> deltas);
+}
@@ -0,0 +1,54 @@
+package com.quickcart.ecommerce.repository;
+
+import com.quickcart.ecommerce.entity.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Map;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public int deductStock(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        quantities.forEach((productId, quantity) -> bulk.updateOne(
+                Query.query(Criteria.where("id").is(productId).and("stock").gte(quantity)),
+                new Update().inc("stock", -quantity)));
+        return bulk.execute().getModifiedCount();
+    }
+
+    @Override
+    public boolean deductStock(String productId, int quantity) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(productId).and("stock").gte(quantity)),
+                new Update().inc("stock", -quantity),
+                Product.class).getModifiedCount() == 1;
+    }
+
+    @Override
+    public void restoreStock(Map<String, Integer> quantities) {
+        applyStockDeltas(quantities);
+    }
+
+    @Override
+    public void applyStockDeltas(Map<String, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        deltas.forEach((productId, delta) -> bulk.updateOne(
+                Query.query(Criteria.where("id").is(productId)),
+                new Update().inc("stock", delta)));
+        bulk.execute();
+    }
+}
@@ -0,0 +1,16 @@
+package com.quickcart.ecommerce.repository;
+
+import com.quickcart.ecommerce.entity.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Date;
+import java.util.List;
+
+public interface StockReservationRepository extends MongoRepository<StockReservation, String> {
+    List<StockReservation> findByOrderIdAndStatus(String orderId, String status);
+
+    List<StockReservation> findByStatusAndExpiresAtBefore(String status, Date now, Pageable pageable);
+
+    List<StockReservation> findByStatusAndReleasingAtBefore(String status, Date before, Pageable pageable);
+}
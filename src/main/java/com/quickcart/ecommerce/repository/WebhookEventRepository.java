@@ -0,0 +1,11 @@
+package com.quickcart.ecommerce.repository;
+
+import com.quickcart.ecommerce.entity.WebhookEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface WebhookEventRepository extends MongoRepository<WebhookEvent, String> {
+    List<WebhookEvent> findByStatusOrderByIdDesc(String status, Pageable pageable);
+}
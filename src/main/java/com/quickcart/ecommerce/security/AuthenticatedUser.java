@@ -0,0 +1,90 @@
+package com.quickcart.ecommerce.security;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The logged-in user as carried by the JWT: ID, username and roles. No database access is needed to build it.
+ * Also the UserDetails used by the login itself (then with the password hash, erased after authentication).
+ */
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final String username;
+    private String password;
+    private final List<String> roles; // Without the "ROLE_" prefix, as stored on UserEntry
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(String id, String username, String password, List<String> roles) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.roles = roles == null ? List.of() : List.copyOf(roles);
+        List<GrantedAuthority> granted = new ArrayList<>();
+        for (String role : this.roles) {
+            granted.add(new SimpleGrantedAuthority("ROLE_" + role));
+        }
+        this.authorities = Collections.unmodifiableList(granted);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    @Override
+    public String toString() {
+        return username; // Authentication.getName() falls back to this for non-UserDetails callers; never print the hash
+    }
+}
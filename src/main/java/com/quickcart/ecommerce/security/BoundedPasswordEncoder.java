@@ -0,0 +1,131 @@
+package com.quickcart.ecommerce.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The application's PasswordEncoder: BCrypt, run on a small dedicated pool instead of on the request threads.
+ *
+ * LOGIC:
+ * 1. encode() (signup, new passwords) and matches() (login) are queued on security.password.hash-threads workers,
+ *    so a burst of logins can use at most that many cores and catalog traffic keeps the rest.
+ * 2. The queue is bounded: when it is full the call fails at once with {@link TooManyRequestsException} (429)
+ *    instead of piling up waiting requests. A call still queued after security.password.max-wait-ms fails the same way.
+ * 3. Metrics: password.hash (time spent hashing, per operation), password.hash.wait (time queued),
+ *    password.hash.queue (current queue depth) and password.hash.rejected.
+ */
+@Component
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.password.bcrypt-strength:10}")
+    private int strength;
+
+    @Value("${security.password.hash-threads:2}")
+    private int threads;
+
+    @Value("${security.password.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${security.password.max-wait-ms:3000}")
+    private long maxWaitMs;
+
+    private PasswordEncoder delegate;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        delegate = new BCryptPasswordEncoder(strength);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        meterRegistry.gauge("password.hash.queue", executor, pool -> pool.getQueue().size());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run("encode", () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run("matches", () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword); // Only reads the hash prefix, no hashing
+    }
+
+    private <T> T run(String operation, Callable<T> hashing) {
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                meterRegistry.timer("password.hash.wait").record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                Timer.Sample sample = Timer.start(meterRegistry);
+                try {
+                    return hashing.call();
+                } finally {
+                    sample.stop(meterRegistry.timer("password.hash", "operation", operation));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw busy(operation, "queue full");
+        }
+
+        try {
+            return result.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(false); // Dropped if it has not started yet
+            throw busy(operation, "timed out in queue");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(false);
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    private TooManyRequestsException busy(String operation, String reason) {
+        meterRegistry.counter("password.hash.rejected", "operation", operation).increment();
+        log.warn("Password {} refused: {} ({} queued)", operation, reason, executor.getQueue().size());
+        return new TooManyRequestsException("Server is busy, try again shortly", 1);
+    }
+}
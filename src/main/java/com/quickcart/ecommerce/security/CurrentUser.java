@@ -0,0 +1,46 @@
+package com.quickcart.ecommerce.security;
+
+import com.quickcart.ecommerce.entity.UserEntry;
+import com.quickcart.ecommerce.service.UserService;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The authenticated user of the current request, injected into controller methods (see CurrentUserArgumentResolver).
+ * ID, username and roles come from the token; the full UserEntry is only read from MongoDB when a handler
+ * asks for it with {@link #load()}, and then at most once per request.
+ */
+public class CurrentUser {
+
+    private final AuthenticatedUser principal;
+    private final UserService userService;
+    private Optional<UserEntry> entry; // null = not loaded yet
+
+    CurrentUser(AuthenticatedUser principal, UserService userService) {
+        this.principal = principal;
+        this.userService = userService;
+    }
+
+    public String getId() {
+        return principal.getId();
+    }
+
+    public String getUsername() {
+        return principal.getUsername();
+    }
+
+    public List<String> getRoles() {
+        return principal.getRoles();
+    }
+
+    /**
+     * The stored user (profile fields, email, ...); empty if the account was deleted after the token was issued.
+     */
+    public Optional<UserEntry> load() {
+        if (entry == null) {
+            entry = userService.getById(getId());
+        }
+        return entry;
+    }
+}
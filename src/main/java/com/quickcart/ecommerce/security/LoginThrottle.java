@@ -0,0 +1,77 @@
+package com.quickcart.ecommerce.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits login attempts before any password is checked, so refused attempts cost no hashing.
+ *
+ * LOGIC:
+ * 1. Every attempt counts against the client IP: at most security.login.max-attempts-per-ip per window.
+ * 2. Failed attempts count against the username: after security.login.max-failures-per-username failures
+ *    the username is locked for the rest of the window. A successful login clears its failures.
+ * Counters live in this JVM (each node protects its own CPU) and a window starts at the first attempt.
+ */
+@Component
+public class LoginThrottle {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.login.max-attempts-per-ip:30}")
+    private int maxAttemptsPerIp;
+
+    @Value("${security.login.max-failures-per-username:5}")
+    private int maxFailuresPerUsername;
+
+    @Value("${security.login.window-seconds:60}")
+    private long windowSeconds;
+
+    @Value("${security.login.max-tracked:100000}")
+    private long maxTracked;
+
+    private Cache<String, AtomicInteger> attemptsByIp;
+    private Cache<String, AtomicInteger> failuresByUsername;
+
+    @PostConstruct
+    void init() {
+        attemptsByIp = Caffeine.newBuilder().maximumSize(maxTracked).expireAfterWrite(Duration.ofSeconds(windowSeconds)).build();
+        failuresByUsername = Caffeine.newBuilder().maximumSize(maxTracked).expireAfterWrite(Duration.ofSeconds(windowSeconds)).build();
+    }
+
+    /**
+     * Counts an attempt; throws {@link TooManyRequestsException} if this IP or username is over its limit.
+     */
+    public void checkAttempt(String ip, String username) {
+        if (attemptsByIp.get(ip, key -> new AtomicInteger()).incrementAndGet() > maxAttemptsPerIp) {
+            throw throttled("ip");
+        }
+        AtomicInteger failures = username == null ? null : failuresByUsername.getIfPresent(username);
+        if (failures != null && failures.get() >= maxFailuresPerUsername) {
+            throw throttled("username");
+        }
+    }
+
+    public void recordFailure(String username) {
+        if (username != null) {
+            failuresByUsername.get(username, key -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    public void recordSuccess(String username) {
+        failuresByUsername.invalidate(username);
+    }
+
+    private TooManyRequestsException throttled(String by) {
+        meterRegistry.counter("login.throttled", "by", by).increment();
+        return new TooManyRequestsException("Too many login attempts, try again later", windowSeconds);
+    }
+}
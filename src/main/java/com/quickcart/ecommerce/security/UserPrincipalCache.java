@@ -0,0 +1,54 @@
+package com.quickcart.ecommerce.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * Users as currently stored in MongoDB, kept for a few seconds.
+ * Used instead of the token claims when security.jwt.fresh-principal=true (role changes apply within the TTL),
+ * and for tokens issued before the claims existed.
+ */
+@Component
+public class UserPrincipalCache {
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Value("${security.jwt.principal-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${security.jwt.principal-cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, AuthenticatedUser> users;
+
+    @PostConstruct
+    void init() {
+        users = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(Duration.ofSeconds(ttlSeconds)).build();
+    }
+
+    // Null if the user no longer exists
+    public AuthenticatedUser get(String username) {
+        return users.get(username, name -> {
+            try {
+                AuthenticatedUser user = (AuthenticatedUser) userDetailsService.loadUserByUsername(name);
+                // Copy without the password hash: this object ends up in the SecurityContext
+                return new AuthenticatedUser(user.getId(), user.getUsername(), null, user.getRoles());
+            } catch (UsernameNotFoundException e) {
+                return null; // Not cached
+            }
+        });
+    }
+
+    public void evict(String username) {
+        users.invalidate(username);
+    }
+}
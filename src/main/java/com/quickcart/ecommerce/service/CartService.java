@@ -3,93 +3,76 @@ package com.quickcart.ecommerce.service;
 import com.quickcart.ecommerce.entity.Cart;
 import com.quickcart.ecommerce.entity.CartItem;
 import com.quickcart.ecommerce.entity.Product;
-import com.quickcart.ecommerce.entity.UserEntry;
-import com.quickcart.ecommerce.repository.CartRepository;
-import com.quickcart.ecommerce.repository.UserRepository;
+import com.quickcart.ecommerce.entity.ProductSnapshot;
+import com.quickcart.ecommerce.service.cart.CartStore;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
+@Slf4j
 public class CartService {
 
     @Autowired
-    private CartRepository cartRepository;
-
-    @Autowired
-    private UserRepository userRepository;
+    private CartStore cartStore; // MongoDB or Redis write-behind, see cart.store
 
     @Autowired
     private ProductService productService;
 
-    public void saveCart(Cart cart) {
-        cartRepository.save(cart);
-    }
-
     public Optional<Cart> getCartByUserId(String userId) {
-        return Optional.ofNullable(cartRepository.findByUserId(userId));
+        return cartStore.find(userId);
     }
 
-    // Add product to user's cart (WITHOUT deducting stock)
-    public Cart addProductToCart(String userId, Product product, int quantity) {
-        Cart cart = cartRepository.findByUserId(userId);
-        if (cart == null) {
-            cart = new Cart();
-            cart.setUserId(userId);
+    /**
+     * Empties the cart after checkout and writes it to MongoDB right away (when carts live in Redis).
+     * If that write fails the cart stays marked dirty and the background flush retries it.
+     * Only MongoDB carts are cleared inside the checkout transaction (see clearsInTransaction), and their
+     * flush is a no-op, so a failed write is never swallowed inside a transaction.
+     */
+    public void clearCart(String userId) {
+        cartStore.clear(userId);
+        try {
+            cartStore.flush(userId);
+        } catch (RuntimeException e) {
+            log.warn("Cart of user {} not flushed on checkout, background flush will retry: {}", userId, e.getMessage());
         }
+    }
 
-        // Check if the product is already in the cart
-        for (CartItem item : cart.getItems()) {
-            if (item.getProduct().getId().equals(product.getId())) {
-                item.setQuantity(item.getQuantity() + quantity); // Update quantity
-                updateTotalPrice(cart);
-                return cartRepository.save(cart);
-            }
-        }
-
-        // If the product is not in the cart, add it
-        CartItem newItem = new CartItem();
-        newItem.setProduct(product);
-        newItem.setQuantity(quantity);
-        cart.getItems().add(newItem);
-        updateTotalPrice(cart);
-
-        // REMOVED: Stock deduction happens here (WRONG!)
-        // Stock will be deducted only when payment is completed
-
-        // Save the cart and update the user's cart list
-        Cart savedCart = cartRepository.save(cart);
-        updateUserCart(userId, savedCart);
-        return savedCart;
+    public boolean clearsInTransaction() {
+        return cartStore.clearsInTransaction();
     }
 
-    // Update user's cart list
-    private void updateUserCart(String userId, Cart cart) {
-        UserEntry user = userRepository.findById(userId).orElse(null);
-        if (user != null) {
-            // Remove old cart references and add new one
-            user.getCarts().removeIf(c -> c.getId().equals(cart.getId()));
-            user.getCarts().add(cart);
-            userRepository.save(user);
-        }
+    /**
+     * Add product to user's cart (WITHOUT deducting stock - that happens when the order is placed).
+     * One atomic update in the cart store (no read-modify-write), so two concurrent "add" clicks both count.
+     * Returns the updated cart.
+     */
+    public Cart addProductToCart(String userId, Product product, int quantity) {
+        return cartStore.addItem(userId, ProductSnapshot.of(product), quantity);
     }
 
-    // Remove product from cart
-    public void removeProductFromCart(String userId, String productId) {
-        Cart cart = cartRepository.findByUserId(userId);
-        if (cart != null) {
-            cart.getItems().removeIf(item -> item.getProduct().getId().equals(productId));
-            updateTotalPrice(cart);
-            cartRepository.save(cart);
-        }
+    // Remove product from cart in one atomic update; returns the updated cart (null if there was nothing to remove)
+    public Cart removeProductFromCart(String userId, String productId) {
+        return cartStore.removeItem(userId, productId);
     }
 
-    // Update total price of the cart
-    private void updateTotalPrice(Cart cart) {
-        double total = cart.getItems().stream()
-                .mapToDouble(item -> item.getProduct().getPrice() * item.getQuantity())
-                .sum();
-        cart.setTotalPrice(total);
+    /**
+     * Optional: attaches the live product to every line with one batch lookup (cache first).
+     * Lines whose product was deleted keep only their snapshot.
+     */
+    public void hydrate(Cart cart) {
+        List<String> productIds = new ArrayList<>();
+        for (CartItem item : cart.getItems()) {
+            productIds.add(item.getProduct().getId());
+        }
+        Map<String, Product> products = productService.getByIds(productIds);
+        for (CartItem item : cart.getItems()) {
+            item.setLiveProduct(products.get(item.getProduct().getId()));
+        }
     }
 }
\ No newline at end of file
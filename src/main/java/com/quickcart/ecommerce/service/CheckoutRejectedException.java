@@ -0,0 +1,12 @@
+package com.quickcart.ecommerce.service;
+
+/**
+ * The order cannot be placed as requested: empty cart, unknown product or not enough stock.
+ * A client error (400) that is the same on every retry, unlike database or cache failures.
+ */
+public class CheckoutRejectedException extends RuntimeException {
+
+    public CheckoutRejectedException(String message) {
+        super(message);
+    }
+}
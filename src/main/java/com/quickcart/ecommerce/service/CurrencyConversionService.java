@@ -0,0 +1,58 @@
+package com.quickcart.ecommerce.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Converts prices (paise) to the currency Stripe charges in, using the rate table in
+ * application.properties (currency.rates.usd=87.50 means 1 USD = 87.50 INR).
+ *
+ * LOGIC:
+ * 1. At startup each rate is turned into a fixed-point long (4 decimals), once.
+ * 2. A conversion is then pure long arithmetic with half-up rounding: no BigDecimal/double per request.
+ * Both currencies are assumed to have 2 decimals (paise, cents).
+ */
+@Service
+@ConfigurationProperties(prefix = "currency")
+@Getter
+@Setter
+public class CurrencyConversionService {
+
+    private static final long RATE_SCALE = 10_000;
+
+    private String base = "inr"; // Currency product prices are stored in
+    private String checkout = "usd"; // Currency Stripe charges in
+    private Map<String, BigDecimal> rates = new HashMap<>(); // Units of base per 1 unit of the currency
+
+    private final Map<String, Long> scaledRates = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        rates.forEach((currency, rate) -> scaledRates.put(currency.toLowerCase(Locale.ROOT),
+                rate.movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact()));
+    }
+
+    public long toCheckoutCurrency(long baseMinorUnits) {
+        return convert(baseMinorUnits, checkout);
+    }
+
+    public long convert(long baseMinorUnits, String currency) {
+        if (base.equalsIgnoreCase(currency)) {
+            return baseMinorUnits;
+        }
+        Long rate = scaledRates.get(currency.toLowerCase(Locale.ROOT));
+        if (rate == null) {
+            throw new RuntimeException("No conversion rate configured for currency: " + currency);
+        }
+        return (Math.multiplyExact(baseMinorUnits, RATE_SCALE) + rate / 2) / rate;
+    }
+}
@@ -2,6 +2,7 @@ package com.quickcart.ecommerce.service;
 
 import com.quickcart.ecommerce.entity.UserEntry;
 import com.quickcart.ecommerce.repository.UserRepository;
+import com.quickcart.ecommerce.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -18,11 +19,8 @@ public class CustomeUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         UserEntry user = userRepository.findByUsername(username);
         if (user != null) {
-            return org.springframework.security.core.userdetails.User.builder()
-                    .username(user.getUsername())
-                    .password(user.getPassword()) // Ensure this is the BCrypt-encoded password
-                    .roles(user.getRoles().toArray(new String[0])) // Set roles
-                    .build();
+            // Carries the user ID too, so the login can put it in the token without another lookup
+            return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPassword(), user.getRoles());
         }
         throw new UsernameNotFoundException("User  not found with username: " + username);
     }
@@ -0,0 +1,127 @@
+package com.quickcart.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Idempotency keys for requests that must run only once (placing an order creates a Stripe session).
+ *
+ * LOGIC:
+ * 1. begin() claims the key with SET NX and a short "in flight" TTL. The first caller gets Optional.empty() and runs the request.
+ * 2. A duplicate that arrives while the first one is still running gets 409 Conflict right away.
+ * 3. complete() stores the final status, Location header and body for idempotency.ttl-hours; later duplicates get
+ *    that response back (the async checkout's 202 is useless without the Location to poll).
+ * 4. abandon() drops the key (server-side failures), so the client may retry with the same key.
+ * If Redis is down the keys are kept in this JVM instead, which still covers retries that reach the same node.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String IN_FLIGHT = "P";
+    private static final String DONE = "D"; // Written before the Location header was kept, read until they expire
+    private static final String DONE_WITH_LOCATION = "L";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.in-flight-seconds:120}")
+    private long inFlightSeconds;
+
+    @Value("${idempotency.local.max-size:100000}")
+    private long localMaxSize;
+
+    private Cache<String, String> local;
+
+    @PostConstruct
+    void init() {
+        local = Caffeine.newBuilder().maximumSize(localMaxSize).expireAfterWrite(Duration.ofHours(ttlHours)).build();
+    }
+
+    /**
+     * Returns empty if the caller now owns the key, otherwise the response to send back.
+     */
+    public Optional<ResponseEntity<String>> begin(String key) {
+        String redisKey = KEY_PREFIX + key;
+        String existing;
+        try {
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(redisKey, IN_FLIGHT, Duration.ofSeconds(inFlightSeconds));
+            existing = Boolean.TRUE.equals(claimed) ? null : redisTemplate.opsForValue().get(redisKey);
+            if (existing == null && !Boolean.TRUE.equals(claimed)) {
+                // Expired between SETNX and GET, try once more
+                return begin(key);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Redis unavailable for idempotency key {}, using local store: {}", key, e.getMessage());
+            existing = local.asMap().putIfAbsent(redisKey, IN_FLIGHT);
+        }
+
+        if (existing == null) {
+            return Optional.empty();
+        }
+        if (IN_FLIGHT.equals(existing)) {
+            return Optional.of(new ResponseEntity<>("A request with this Idempotency-Key is already in progress", HttpStatus.CONFLICT));
+        }
+        return Optional.of(decode(existing));
+    }
+
+    public void complete(String key, ResponseEntity<String> response) {
+        String redisKey = KEY_PREFIX + key;
+        URI location = response.getHeaders().getLocation();
+        String value = DONE_WITH_LOCATION + response.getStatusCodeValue()
+                + "\n" + (location == null ? "" : location.toString())
+                + "\n" + (response.getBody() == null ? "" : response.getBody());
+        local.asMap().computeIfPresent(redisKey, (k, v) -> value); // Claimed locally while Redis was down
+        try {
+            redisTemplate.opsForValue().set(redisKey, value, Duration.ofHours(ttlHours));
+        } catch (DataAccessException e) {
+            log.warn("Could not store idempotent response for {} in Redis, keeping it locally: {}", key, e.getMessage());
+            local.put(redisKey, value);
+        }
+    }
+
+    public void abandon(String key) {
+        String redisKey = KEY_PREFIX + key;
+        local.invalidate(redisKey);
+        try {
+            redisTemplate.delete(redisKey);
+        } catch (DataAccessException e) {
+            log.warn("Could not release idempotency key {} in Redis: {}", key, e.getMessage());
+        }
+    }
+
+    // Stored as "L<status>\n<location>\n<body>" (older entries: "D<status>\n<body>")
+    private ResponseEntity<String> decode(String value) {
+        int newline = value.indexOf('\n');
+        int status = Integer.parseInt(value.substring(DONE.length(), newline)); // Both markers are one character
+        String location = "";
+        if (value.startsWith(DONE_WITH_LOCATION)) {
+            int next = value.indexOf('\n', newline + 1);
+            location = value.substring(newline + 1, next);
+            newline = next;
+        }
+        String body = value.substring(newline + 1);
+        ResponseEntity.BodyBuilder replay = ResponseEntity.status(status).header("Idempotent-Replayed", "true");
+        if (!location.isEmpty()) {
+            replay.location(URI.create(location));
+        }
+        return replay.body(body.isEmpty() ? null : body);
+    }
+}
@@ -1,25 +1,51 @@
 package com.quickcart.ecommerce.service;
 
+import com.quickcart.ecommerce.config.CheckoutTransaction;
+import com.quickcart.ecommerce.dto.OrderPage;
+import com.quickcart.ecommerce.dto.OrderSummary;
 import com.quickcart.ecommerce.entity.*;
 import com.quickcart.ecommerce.repository.OrderRepository;
-import com.quickcart.ecommerce.repository.UserRepository;
+import com.quickcart.ecommerce.utills.Money;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class OrderService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final List<String> UNPAID = List.of("Pending", "Expired");
+
     @Autowired
     private OrderRepository orderRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CheckoutTransaction checkoutTransaction; // A MongoDB transaction when the database supports them
 
     @Autowired
     private CartService cartService;
@@ -27,78 +53,200 @@ public class OrderService {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ReservationService reservationService;
+
+    @Value("${order.paying-timeout-seconds:300}")
+    private long payingTimeoutSeconds;
+
+    // Orders are found by their (indexed) userId, so the user document is not touched
     public void saveOrder(Order order) {
         orderRepository.save(order);
-        UserEntry user = userRepository.findById(order.getUserId()).orElse(null);
-        if (user != null) {
-            user.getOrders().add(order);
-            userRepository.save(user);
-        }
     }
 
+    /**
+     * Checkout pipeline. Every stage is timed ("checkout.stage" metric, tagged with the stage):
+     * 1. load     - the cart, then all of its products with ONE batch lookup (cache first).
+     *               The caller already resolved the authenticated user, so it is not loaded again.
+     * 2. price    - validate stock and price every line in memory (exact long arithmetic).
+     * 3. reserve  - take the stock (see ReservationService).
+     * 4. persist  - insert the order AND clear the cart in one MongoDB transaction
+     *               (when the database supports them, see CheckoutTransaction), so we never keep a cart whose order was saved.
+     *               A Redis cart can't join that transaction: it is cleared only after the order is committed,
+     *               so a failed checkout never loses the cart.
+     */
     public Order placeOrderFromCart(String userId) {
-        UserEntry user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new RuntimeException("User not found!");
-        }
+        Timer.Sample checkout = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            //STEP 1: Load the cart and every product in it
+            Map<String, Product> products = new LinkedHashMap<>();
+            Cart cart = stage("load").record(() -> {
+                Cart loaded = cartService.getCartByUserId(userId).orElse(null);
+                if (loaded == null || loaded.getItems().isEmpty()) {
+                    throw new CheckoutRejectedException("Cart is empty!");
+                }
+                List<String> productIds = new ArrayList<>();
+                for (CartItem item : loaded.getItems()) {
+                    productIds.add(item.getProduct().getId());
+                }
+                products.putAll(productService.getByIds(productIds));
+                return loaded;
+            });
 
-        Cart cart = cartService.getCartByUserId(userId).orElse(null);
-        if (cart == null || cart.getItems().isEmpty()) {
-            throw new RuntimeException("Cart is empty!");
-        }
+            //STEP 2: Validate stock and build the "Pending" order, in memory
+            Order order = stage("price").record(() -> priceOrder(userId, cart, products));
 
-        //STEP 1: Validate stock availability BEFORE creating order
-        for (CartItem item : cart.getItems()) {
-            Product product = productService.getById(item.getProduct().getId()).orElse(null);
-            if (product == null) {
-                throw new RuntimeException("Product not found: " + item.getProduct().getName());
-            }
-            if (item.getQuantity() > product.getStock()) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName() +
-                        ". Available: " + product.getStock() + ", Requested: " + item.getQuantity());
-            }
+            //STEP 3 + 4: Reserve the stock, then save the order and clear the cart together
+            reserveAndSave(order, userId);
+
+            outcome = "success";
+            return order;
+        } finally {
+            checkout.stop(meterRegistry.timer("checkout", "outcome", outcome));
         }
+    }
 
-        //STEP 2: Create order with "Pending" status and OrderItems
+    private Order priceOrder(String userId, Cart cart, Map<String, Product> products) {
         Order order = new Order();
         order.setUserId(userId);
         order.setStatus("Pending");
         order.setOrderItems(new ArrayList<>());
 
-        double totalAmount = 0.0;
+        long totalAmount = 0;
         for (CartItem cartItem : cart.getItems()) {
-            Product product = productService.getById(cartItem.getProduct().getId()).orElse(null);
+            Product product = products.get(cartItem.getProduct().getId());
+            if (product == null) {
+                throw new CheckoutRejectedException("Product not found: " + cartItem.getProduct().getName());
+            }
+            if (cartItem.getQuantity() > product.getStock()) {
+                throw new CheckoutRejectedException("Insufficient stock for product: " + product.getName() +
+                        ". Available: " + product.getStock() + ", Requested: " + cartItem.getQuantity());
+            }
 
             // Create OrderItem with product, quantity, and price
             OrderItem orderItem = new OrderItem();
-            orderItem.setProduct(product);
+            orderItem.setProduct(ProductSnapshot.of(product));
             orderItem.setQuantity(cartItem.getQuantity());
             orderItem.setPriceAtOrder(product.getPrice());
 
             order.getOrderItems().add(orderItem);
-            totalAmount += product.getPrice() * cartItem.getQuantity();
+            totalAmount = Money.add(totalAmount, Money.lineTotal(product.getPrice(), cartItem.getQuantity()));
         }
-
         order.setTotalAmount(totalAmount);
+        return order;
+    }
 
-        log.info("Order created with ID: {} and status: Pending (Stock NOT deducted yet)", order.getId());
+    // "Buy Now": order a single product without going through the cart
+    public Order placeSingleOrder(String userId, Product product, int quantity) {
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setStatus("Pending");
+        order.setOrderItems(new ArrayList<>());
 
-        saveOrder(order);
+        OrderItem orderItem = new OrderItem();
+        orderItem.setProduct(ProductSnapshot.of(product));
+        orderItem.setQuantity(quantity);
+        orderItem.setPriceAtOrder(product.getPrice());
 
-        //STEP 3: Clear the cart after order is placed
-        cart.getItems().clear();
-        cart.setTotalPrice(0.0);
-        cartService.saveCart(cart);
+        order.getOrderItems().add(orderItem);
+        order.setTotalAmount(Money.lineTotal(product.getPrice(), quantity));
 
+        reserveAndSave(order, null);
         return order;
     }
 
+    /**
+     * The order ID is assigned up front so the reservations can point to it.
+     * If reserving fails nothing is saved; if saving fails the reserved stock is given back.
+     * cartOwner (null for "Buy Now") is the user whose cart is emptied: in the same transaction as the order insert
+     * when there is one and the cart store can join it, otherwise once the order is saved.
+     * Without a transaction the insert is the success point: nothing after it may release the reservation,
+     * or a Pending order could be paid with no stock held behind it.
+     */
+    private void reserveAndSave(Order order, String cartOwner) {
+        order.setId(new ObjectId().toHexString());
+        order.setReservedUntil(reservationService.newExpiry());
+        stage("reserve").record(() ->
+                reservationService.reserve(order.getId(), lineQuantities(order), order.getReservedUntil()));
+        boolean clearWithOrder = cartOwner != null && cartService.clearsInTransaction() && checkoutTransaction.isEnabled();
+        try {
+            stage("persist").record(() -> checkoutTransaction.run(() -> {
+                orderRepository.insert(order);
+                if (clearWithOrder) {
+                    cartService.clearCart(cartOwner);
+                }
+            }));
+        } catch (RuntimeException e) {
+            reservationService.release(order.getId());
+            throw e;
+        }
+        log.info("Order created with ID: {} and status: Pending (stock reserved until {})",
+                order.getId(), order.getReservedUntil());
+
+        if (cartOwner != null && !clearWithOrder) {
+            clearCartAfterOrder(order.getId(), cartOwner);
+        }
+    }
+
+    // The order is saved and holds its stock: a cart that can't be emptied now must not fail the checkout
+    private void clearCartAfterOrder(String orderId, String userId) {
+        try {
+            cartService.clearCart(userId);
+        } catch (RuntimeException e) {
+            log.error("Order {} placed but the cart of user {} could not be cleared: {}", orderId, userId, e.getMessage());
+        }
+    }
+
+    private Timer stage(String name) {
+        return meterRegistry.timer("checkout.stage", "stage", name);
+    }
+
+    // One entry per product, quantities summed
+    private Map<String, Integer> lineQuantities(Order order) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            quantities.merge(orderItem.getProduct().getId(), orderItem.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
     public List<Order> getAllOrdersByUserId(String userId) {
         return orderRepository.findByUserId(userId);
     }
 
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    /**
+     * Optional: attaches the live product to every line of these orders with one batch lookup (cache first).
+     * The snapshot still says what was bought; lines whose product was deleted keep only the snapshot.
+     */
+    public void hydrate(List<Order> orders) {
+        List<String> productIds = new ArrayList<>();
+        for (Order order : orders) {
+            for (OrderItem orderItem : order.getOrderItems()) {
+                productIds.add(orderItem.getProduct().getId());
+            }
+        }
+        Map<String, Product> products = productService.getByIds(productIds);
+        for (Order order : orders) {
+            for (OrderItem orderItem : order.getOrderItems()) {
+                orderItem.setLiveProduct(products.get(orderItem.getProduct().getId()));
+            }
+        }
+    }
+
+    /**
+     * Keyset pagination over order summaries, newest first: fetch "size + 1" rows to know
+     * whether another page exists without a count query. userId null = all users (admin).
+     */
+    public OrderPage getOrderPage(String userId, String status, Date from, Date to, String after, int size) {
+        List<OrderSummary> rows = orderRepository.findSummaries(userId, status, from, to, after, size + 1);
+        boolean hasMore = rows.size() > size;
+        List<OrderSummary> items = hasMore ? rows.subList(0, size) : rows;
+        return OrderPage.builder()
+                .items(new ArrayList<>(items))
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? items.get(items.size() - 1).getId() : null)
+                .build();
     }
 
     public Optional<Order> getById(String orderId) {
@@ -106,58 +254,136 @@ public class OrderService {
     }
 
     public void deleteById(String orderId) {
+        reservationService.release(orderId); // A deleted unpaid order must not keep holding stock
         orderRepository.deleteById(orderId);
     }
 
-    // CRITICAL: Update order status to "Paid" AND deduct stock from products
+    /**
+     * CRITICAL: Update order status to "Paid" AND deduct the stock that is not reserved any more.
+     * Stripe can deliver a payment twice (and failed webhooks are retried), so the order is first claimed
+     * with one conditional update (Pending/Expired -> "Paying"): only one delivery ever gets to deduct stock.
+     */
     public void updateOrderStatusToPaid(String orderId) {
-        Optional<Order> orderOpt = orderRepository.findById(orderId);
-        if (orderOpt.isPresent()) {
-            Order order = orderOpt.get();
+        // "Expired" is still accepted: the customer paid after the reservation ran out
+        Order order = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(orderId).and("status").in(UNPAID)),
+                new Update().set("status", "Paying").set("payingSince", new Date()),
+                Order.class); // The order as it was before the claim
+        if (order == null) {
+            Optional<Order> current = orderRepository.findById(orderId);
+            if (current.isPresent() && "Paying".equals(current.get().getStatus())) {
+                // Another delivery is in the middle of it: retried later. A claim that never finishes is moved
+                // to "Needs Review" by recoverStuckPayments, and the retry then skips the order
+                throw new RuntimeException("Order " + orderId + " is already being marked as paid");
+            }
+            log.warn("Order {} is {}, skipping stock deduction", orderId,
+                    current.map(o -> "already '" + o.getStatus() + "'").orElse("not found"));
+            return;
+        }
 
-            log.info("Processing payment completion for order: {}", orderId);
-            log.info("Starting stock deduction process...");
+        log.info("Processing payment completion for order: {}", orderId);
 
-            // Deduct stock for each product in the order
-            for (OrderItem orderItem : order.getOrderItems()) {
-                Optional<Product> productOpt = productService.getById(orderItem.getProduct().getId());
-                if (productOpt.isPresent()) {
-                    Product product = productOpt.get();
-                    int quantityOrdered = orderItem.getQuantity();
-
-                    // Verify stock is still available
-                    if (product.getStock() >= quantityOrdered) {
-                        int oldStock = product.getStock();
-                        product.setStock(product.getStock() - quantityOrdered);
-                        productService.saveProduct(product);
-
-                        log.info("Stock deducted for '{}' | Quantity: {} | Old Stock: {} | New Stock: {}",
-                                product.getName(), quantityOrdered, oldStock, product.getStock());
-                    } else {
-                        log.error("Insufficient stock for product '{}' | Available: {} | Requested: {}",
-                                product.getName(), product.getStock(), quantityOrdered);
-                        // You might want to handle this case differently
-                        // For now, we'll still mark order as paid but log the error
-                    }
-                }
+        Set<String> committed;
+        try {
+            committed = reservationService.commit(orderId);
+        } catch (RuntimeException e) {
+            // Nothing deducted yet: hand the order back so a retry starts over
+            setStatusIf(orderId, "Paying", order.getStatus());
+            throw e;
+        }
+
+        // Reserved lines already hold their stock; only the rest must be deducted now,
+        // atomically and in a single bulk write
+        Map<String, Integer> quantities = lineQuantities(order);
+        quantities.keySet().removeAll(committed);
+        int applied;
+        try {
+            applied = productService.deductStock(quantities);
+        } catch (RuntimeException e) {
+            // Some lines may already be deducted, so a retry could take them twice: the payment is kept
+            // and someone checks the stock of this order
+            setStatusIf(orderId, "Paying", "Needs Review");
+            log.error("Order {} paid but its stock deduction failed, marked for review: {}", orderId, e.getMessage());
+            return;
+        }
+
+        if (applied == quantities.size()) {
+            setStatusIf(orderId, "Paying", "Paid");
+            log.info("Order {} status updated to PAID ({} lines reserved, {} deducted now)",
+                    orderId, committed.size(), applied);
+        } else {
+            // Paid, but some products ran out in the meantime: someone has to look at this order
+            setStatusIf(orderId, "Paying", "Needs Review");
+            log.error("Order {} paid but only {} of {} unreserved stock lines could be deducted, marked for review",
+                    orderId, applied, quantities.size());
+        }
+    }
+
+    /**
+     * Orders claimed for payment ("Paying") that never got further: the node died, or the status could not be
+     * written after a failure. Whether their stock was deducted is unknown, so they go to "Needs Review".
+     * The claim time is part of the update, so an order claimed again in the meantime is left alone.
+     */
+    @Scheduled(fixedDelayString = "${reservation.sweep-interval-ms:60000}")
+    public void recoverStuckPayments() {
+        Date before = new Date(System.currentTimeMillis() - payingTimeoutSeconds * 1000);
+        List<Order> stuck = mongoTemplate.find(
+                Query.query(Criteria.where("status").is("Paying").orOperator(
+                        Criteria.where("payingSince").lt(before),
+                        Criteria.where("payingSince").exists(false))), // Claimed before the field existed
+                Order.class);
+        for (Order order : stuck) {
+            boolean moved = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("id").is(order.getId()).and("status").is("Paying")
+                            .and("payingSince").is(order.getPayingSince())),
+                    new Update().set("status", "Needs Review"),
+                    Order.class).getModifiedCount() > 0;
+            if (moved) {
+                log.error("Order {} stayed 'Paying' since {}, marked for review", order.getId(), order.getPayingSince());
             }
+        }
+    }
 
-            // Update order status to "Paid"
-            order.setStatus("Paid");
-            orderRepository.save(order);
+    /**
+     * Stores the checkout session of a still-Pending order (an order that already expired or failed keeps its status).
+     */
+    public boolean attachCheckoutSession(String orderId, String sessionId, String checkoutUrl) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(orderId).and("status").is("Pending")),
+                new Update().set("checkoutSessionId", sessionId).set("checkoutUrl", checkoutUrl),
+                Order.class).getModifiedCount() > 0;
+    }
 
-            log.info("Order {} status updated to PAID and stock deducted", orderId);
+    // Payment failed, or the checkout session could not be created/expired: give the reserved stock back.
+    // An order that was paid in the meantime keeps its status and its stock.
+    public void markPaymentFailed(String orderId, String status) {
+        if (updateOrderStatus(orderId, status)) {
+            reservationService.release(orderId);
         }
     }
 
-    // Method to update order status to any status
-    public void updateOrderStatus(String orderId, String status) {
-        Optional<Order> orderOpt = orderRepository.findById(orderId);
-        if (orderOpt.isPresent()) {
-            Order order = orderOpt.get();
-            order.setStatus(status);
-            orderRepository.save(order);
+    /**
+     * Moves a still-unpaid (Pending or Expired) order to another status; never overwrites Paid or any later status.
+     * Returns false if the order was not unpaid any more.
+     */
+    public boolean updateOrderStatus(String orderId, String status) {
+        boolean updated = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(orderId).and("status").in(UNPAID)),
+                new Update().set("status", status),
+                Order.class).getModifiedCount() > 0;
+        if (updated) {
             log.info("Order {} status updated to: {}", orderId, status);
+        } else {
+            log.warn("Order {} is no longer unpaid, status '{}' not applied", orderId, status);
         }
+        return updated;
+    }
+
+    // Only the status field is written, and only if it still is the expected one
+    private void setStatusIf(String orderId, String expected, String status) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(orderId).and("status").is(expected)),
+                new Update().set("status", status),
+                Order.class);
     }
-}
\ No newline at end of file
+}
@@ -1,91 +1,139 @@
 package com.quickcart.ecommerce.service;
 
-import com.quickcart.ecommerce.entity.UserEntry;
 import com.quickcart.ecommerce.entity.ProductRequest;
 import com.quickcart.ecommerce.entity.StripeResponse;
-import com.stripe.Stripe;
-import com.stripe.exception.StripeException;
-import com.stripe.model.checkout.Session;
-import com.stripe.param.checkout.SessionCreateParams;
+import com.quickcart.ecommerce.service.payment.CheckoutGateway;
+import com.quickcart.ecommerce.service.payment.CheckoutUnavailableException;
+import com.quickcart.ecommerce.service.payment.CircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates checkout sessions through the configured {@link CheckoutGateway}.
+ *
+ * LOGIC:
+ * 1. Every call goes through a circuit breaker: while the provider is down, checkouts fail fast instead of
+ *    each request thread waiting for a timeout.
+ * 2. payment.checkout.async=false: the session is created on the request thread (the old behaviour).
+ * 3. payment.checkout.async=true: the session is created on a small bounded pool; the order gets its checkout URL
+ *    (or is marked "Payment Failed" and its stock released) when it is done. A full queue is refused immediately.
+ */
 @Service
+@Slf4j
 public class PaymentService {
 
-    @Value("${stripe.secretKey}")
-    private String secretKey;
+    @Autowired
+    private CheckoutGateway checkoutGateway;
 
     @Autowired
-    private UserService userService;
-
-    public StripeResponse checkoutProducts(ProductRequest productRequest, String orderId) {
-        // Set your secret key
-        Stripe.apiKey = secretKey;
-
-        // Get the currently authenticated user
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserEntry user = userService.findByUsername(username).orElse(null);
-
-        if (user == null) {
-            return StripeResponse.builder()
-                    .status("ERROR")
-                    .message("User not found")
-                    .build();
+    private OrderService orderService;
+
+    @Value("${payment.checkout.async:false}")
+    private boolean async;
+
+    @Value("${payment.checkout.threads:16}")
+    private int threads;
+
+    @Value("${payment.checkout.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${payment.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${payment.circuit-breaker.open-seconds:30}")
+    private long openSeconds;
+
+    private CircuitBreaker circuitBreaker;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        circuitBreaker = new CircuitBreaker(failureThreshold, openSeconds * 1000);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "checkout-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    // False while the circuit is open: don't even create (and reserve stock for) an order
+    public boolean isAvailable() {
+        return !circuitBreaker.isOpen();
+    }
+
+    /**
+     * Creates the session on the calling thread. Throws {@link CheckoutUnavailableException} if the provider is down.
+     */
+    public StripeResponse checkoutProducts(ProductRequest productRequest, String orderId, String userId) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CheckoutUnavailableException("Payment provider unavailable, try again later");
+        }
+        try {
+            StripeResponse response = checkoutGateway.createSession(productRequest, orderId, userId);
+            circuitBreaker.recordSuccess(); // The provider answered, even if it refused this request
+            return response;
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure();
+            throw e instanceof CheckoutUnavailableException
+                    ? e
+                    : new CheckoutUnavailableException("Payment provider error: " + e.getMessage(), e);
         }
+    }
 
-        // Create product data
-        SessionCreateParams.LineItem.PriceData.ProductData productData =
-                SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                        .setName(productRequest.getName())
-                        .build();
-
-        // Create price data
-        SessionCreateParams.LineItem.PriceData priceData =
-                SessionCreateParams.LineItem.PriceData.builder()
-                        .setCurrency(productRequest.getCurrency() != null ? productRequest.getCurrency() : "USD")
-                        .setUnitAmount(productRequest.getAmount())
-                        .setProductData(productData)
-                        .build();
-
-        // Create line item
-        SessionCreateParams.LineItem lineItem =
-                SessionCreateParams.LineItem.builder()
-                        .setQuantity(productRequest.getQuantity())
-                        .setPriceData(priceData)
-                        .build();
-
-        // Create session parameters with metadata for order tracking
-        SessionCreateParams params =
-                SessionCreateParams.builder()
-                        .setMode(SessionCreateParams.Mode.PAYMENT)
-                        .setSuccessUrl("http://localhost:8080/success?session_id={CHECKOUT_SESSION_ID}")
-                        .setCancelUrl("http://localhost:8080/cancel")
-                        .addLineItem(lineItem)
-                        .putMetadata("orderId", orderId) // Store orderId in metadata
-                        .putMetadata("userId", user.getId()) // Store userId in metadata
-                        .build();
-
-        // Create session
-        Session session;
+    /**
+     * Queues session creation and returns at once. Throws {@link CheckoutUnavailableException} if the queue is full.
+     */
+    public void startCheckout(ProductRequest productRequest, String orderId, String userId) {
         try {
-            session = Session.create(params);
-        } catch (StripeException e) {
-            return StripeResponse.builder()
-                    .status("ERROR")
-                    .message("Failed to create session: " + e.getMessage())
-                    .build();
+            executor.execute(() -> completeCheckout(productRequest, orderId, userId));
+        } catch (RejectedExecutionException e) {
+            throw new CheckoutUnavailableException("Too many checkouts in progress, try again later");
         }
+    }
 
-        return StripeResponse.builder()
-                .status("SUCCESS")
-                .message("Payment session created")
-                .sessionId(session.getId())
-                .sessionUrl(session.getUrl())
-                .build();
+    private void completeCheckout(ProductRequest productRequest, String orderId, String userId) {
+        try {
+            StripeResponse response = checkoutProducts(productRequest, orderId, userId);
+            if ("SUCCESS".equals(response.getStatus())) {
+                if (!orderService.attachCheckoutSession(orderId, response.getSessionId(), response.getSessionUrl())) {
+                    log.warn("Order {} is no longer Pending, checkout session {} not attached", orderId, response.getSessionId());
+                }
+                return;
+            }
+            log.error("Checkout session for order {} refused: {}", orderId, response.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Checkout session for order {} failed: {}", orderId, e.getMessage());
+        }
+        try {
+            orderService.markPaymentFailed(orderId, "Payment Failed"); // Don't hold stock for an unpayable order
+        } catch (RuntimeException e) {
+            // The reservation sweeper still releases the stock when it expires
+            log.error("Could not mark order {} as Payment Failed: {}", orderId, e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,55 +1,288 @@
 package com.quickcart.ecommerce.service;
 
+import com.quickcart.ecommerce.config.TwoLevelCache;
+import com.quickcart.ecommerce.dto.ProductIdPage;
+import com.quickcart.ecommerce.dto.ProductPage;
 import com.quickcart.ecommerce.entity.Product;
 import com.quickcart.ecommerce.repository.ProductRepository;
+import com.quickcart.ecommerce.service.inventory.HotSkuInventory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Slf4j // Using Lombok for better logging
 public class ProductService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private HotSkuInventory hotSkuInventory;
+
     /**
      * LOGIC:
-     * 1. Check Redis for "products::productId".
+     * 1. Check the in-process near-cache, then Redis for "products::productId".
      * 2. If found (Cache Hit), return immediately.
      * 3. If NOT found (Cache Miss), execute method to fetch from MongoDB.
-     * 4. Store result in Redis for 2 minutes and return.
+     *    sync = true: concurrent misses for the same product wait for ONE MongoDB call instead of all hitting it.
+     * 4. Store result in Redis for 1 hour (and locally for a few seconds) and return.
      */
-    @Cacheable(value = "products", key = "#productId")
+    @Cacheable(value = "products", key = "#productId", sync = true)
     public Optional<Product> getById(String productId) {
         log.info("### CACHE MISS: Fetching Product {} from MongoDB", productId);
         return productRepository.findById(productId);
     }
 
-    @Cacheable(value = "allProducts", key = "'list'")
+    /**
+     * Batch lookup used by cart, order and page reads.
+     * 1. Resolve cache hits with one multi-get (near-cache, then a single Redis MGET).
+     * 2. Fetch every miss with ONE MongoDB $in query.
+     * 3. Back-fill the cache (including "not found") in one pipelined write.
+     * Returns products keyed by ID in request order; unknown IDs are simply absent.
+     */
+    public Map<String, Product> getByIds(Collection<String> productIds) {
+        Set<String> ids = new LinkedHashSet<>(productIds);
+        Map<String, Product> result = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        Cache productsCache = cacheManager.getCache("products");
+        Map<Object, Object> cached = new HashMap<>();
+        if (productsCache instanceof TwoLevelCache) {
+            cached = ((TwoLevelCache) productsCache).getAll(ids);
+        } else {
+            for (String id : ids) {
+                Cache.ValueWrapper wrapper = productsCache.get(id);
+                if (wrapper != null) {
+                    cached.put(id, wrapper.get());
+                }
+            }
+        }
+
+        List<String> misses = new ArrayList<>();
+        for (String id : ids) {
+            if (!cached.containsKey(id)) {
+                misses.add(id);
+            }
+        }
+
+        Map<String, Product> loaded = new HashMap<>();
+        if (!misses.isEmpty()) {
+            log.info("### CACHE MISS: Fetching {} products from MongoDB in one query", misses.size());
+            for (Product product : productRepository.findAllById(misses)) {
+                loaded.put(product.getId(), product);
+            }
+            backFill(productsCache, misses, loaded);
+        }
+
+        for (String id : ids) {
+            Product product = cached.containsKey(id) ? (Product) cached.get(id) : loaded.get(id);
+            if (product != null) {
+                result.put(id, product);
+            }
+        }
+        return result;
+    }
+
+    private void backFill(Cache productsCache, List<String> ids, Map<String, Product> loaded) {
+        Map<String, Product> entries = new HashMap<>();
+        for (String id : ids) {
+            entries.put(id, loaded.get(id)); // null caches the "not found" just like getById does
+        }
+        if (productsCache instanceof TwoLevelCache) {
+            ((TwoLevelCache) productsCache).putAll(entries);
+        } else {
+            entries.forEach(productsCache::put);
+        }
+    }
+
+    @Cacheable(value = "allProducts", key = "'list'", sync = true) // Only one full-collection load at a time
     public List<Product> getAllProducts() {
         log.info("### CACHE MISS: Fetching all products from MongoDB");
         return productRepository.findAll();
     }
 
     /**
-     * When saving/updating, we use @CacheEvict to remove the old data.
-     * This ensures the "Next" get request fetches the fresh data from the DB.
+     * Keyset pagination: fetch "size + 1" products after the cursor (ordered by _id)
+     * so we know whether another page exists without a count query.
+     * Only the IDs of a page are cached; the products themselves are read through the "products" cache,
+     * so updating one product never invalidates a page.
+     */
+    public ProductPage getProductPage(String after, int size) {
+        String pageKey = (after == null ? "first" : after) + ":" + size;
+        ProductIdPage idPage = cacheManager.getCache("productPages").get(pageKey, () -> loadIdPage(after, size));
+
+        // Products deleted since the page was cached are simply skipped
+        List<Product> items = new ArrayList<>(getByIds(idPage.getIds()).values());
+        return ProductPage.builder()
+                .items(items)
+                .hasMore(idPage.isHasMore())
+                .nextCursor(idPage.getNextCursor())
+                .build();
+    }
+
+    private ProductIdPage loadIdPage(String after, int size) {
+        log.info("### CACHE MISS: Fetching product page after {} (size {}) from MongoDB", after, size);
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Product> products = after == null
+                ? productRepository.findAllByOrderByIdAsc(limit)
+                : productRepository.findByIdGreaterThanOrderByIdAsc(after, limit);
+
+        boolean hasMore = products.size() > size;
+        List<Product> pageProducts = hasMore ? products.subList(0, size) : products;
+
+        // We already have the documents, so warm the product cache with them
+        List<String> ids = new ArrayList<>(pageProducts.size());
+        Map<String, Product> loaded = new HashMap<>();
+        for (Product product : pageProducts) {
+            ids.add(product.getId());
+            loaded.put(product.getId(), product);
+        }
+        backFill(cacheManager.getCache("products"), ids, loaded);
+        return new ProductIdPage(ids, hasMore ? ids.get(ids.size() - 1) : null, hasMore);
+    }
+
+    /**
+     * Write-through instead of flushing every product cache:
+     * 1. Save to MongoDB.
+     * 2. Replace only this product's entry in "products" (other nodes drop their near-cache copy).
+     * 3. Evict the cached "allProducts" list (it is rebuilt by the next read; patching it in place could lose updates).
+     * 4. Pages only hold IDs, so they are evicted only when a NEW product changes page membership.
+     */
+    public Product saveProduct(Product product) {
+        boolean isNew = product.getId() == null;
+        Product saved = productRepository.save(product);
+        if (hotSkuInventory.isHot(saved.getId())) {
+            hotSkuInventory.reset(saved.getId(), saved.getStock()); // The admin's stock value wins
+        }
+
+        cacheManager.getCache("products").put(saved.getId(), saved);
+        cacheManager.getCache("allProducts").evict("list");
+        if (isNew) {
+            cacheManager.getCache("productPages").clear();
+        }
+        log.info("### CACHE UPDATED: Product {} written through", saved.getId());
+        return saved;
+    }
+
+    /**
+     * Atomic stock deduction for a whole order (see ProductRepositoryCustom#deductStock).
+     * Returns how many lines were applied; the changed products are then evicted from the cache.
+     * Hot SKUs are taken from their in-memory counter instead (see HotSkuInventory).
+     */
+    public int deductStock(Map<String, Integer> quantities) {
+        Map<String, Integer> cold = new HashMap<>();
+        int applied = 0;
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            if (!hotSkuInventory.isHot(line.getKey())) {
+                cold.put(line.getKey(), line.getValue());
+            } else if (hotSkuInventory.tryTake(line.getKey(), line.getValue())) {
+                applied++;
+            }
+        }
+        int appliedCold = productRepository.deductStock(cold);
+        if (appliedCold > 0) {
+            evictStock(cold.keySet());
+        }
+        return applied + appliedCold;
+    }
+
+    // Single line: used when reserving stock at checkout
+    public boolean deductStock(String productId, int quantity) {
+        if (hotSkuInventory.isHot(productId)) {
+            return hotSkuInventory.tryTake(productId, quantity);
+        }
+        boolean applied = productRepository.deductStock(productId, quantity);
+        if (applied) {
+            evictStock(List.of(productId));
+        }
+        return applied;
+    }
+
+    public void restoreStock(Map<String, Integer> quantities) {
+        Map<String, Integer> cold = new HashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (hotSkuInventory.isHot(productId)) {
+                hotSkuInventory.giveBack(productId, quantity);
+            } else {
+                cold.put(productId, quantity);
+            }
+        });
+        if (cold.isEmpty()) {
+            return;
+        }
+        productRepository.restoreStock(cold);
+        evictStock(cold.keySet());
+    }
+
+    /**
+     * Write-behind for hot SKUs: every flush interval, all counter changes since the last flush
+     * go to MongoDB in ONE bulk write instead of one write per sale.
+     * If MongoDB is unavailable the changes are put back and retried on the next run.
+     * Also runs on shutdown so a graceful restart loses nothing.
+     */
+    @Scheduled(fixedDelayString = "${inventory.hot-sku.flush-interval-ms:1000}")
+    @PreDestroy
+    public void flushHotStock() {
+        Map<String, Integer> deltas = hotSkuInventory.drainPending();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            productRepository.applyStockDeltas(deltas);
+        } catch (RuntimeException e) {
+            hotSkuInventory.restorePending(deltas);
+            log.warn("Hot SKU flush failed, will retry {} products: {}", deltas.size(), e.getMessage());
+            return;
+        }
+        evictStock(deltas.keySet());
+        log.debug("Flushed hot SKU stock for {} products", deltas.size());
+    }
+
+    /**
+     * Stock changed in MongoDB: drop those products' cache entries so the next read loads them.
+     * Writing a re-read copy instead could let a slower re-read overwrite a newer one for the whole TTL.
+     * The "allProducts" list is left alone on stock-only changes: its stock may lag by up to its (2 minute) TTL,
+     * which avoids reading and rewriting the whole list on every sale.
      */
-    @CacheEvict(value = {"products", "allProducts"}, allEntries = true) // Clear allProducts cache too
-    public void saveProduct(Product product) {
-        productRepository.save(product);
-        log.info("### CACHE EVICTED: Product and List cleared");
+    private void evictStock(Collection<String> productIds) {
+        Cache productsCache = cacheManager.getCache("products");
+        for (String productId : productIds) {
+            productsCache.evict(productId);
+        }
     }
 
-    @CacheEvict(value = "products", key = "#productId")
+    @Caching(evict = {
+            @CacheEvict(value = "products", key = "#productId"),
+            @CacheEvict(value = {"allProducts", "productPages"}, allEntries = true)
+    })
     public void deleteById(String productId) {
         productRepository.deleteById(productId);
         log.info("### CACHE EVICTED: Product {} deleted", productId);
     }
-}
\ No newline at end of file
+}
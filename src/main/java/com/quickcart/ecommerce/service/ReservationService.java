@@ -0,0 +1,232 @@
+package com.quickcart.ecommerce.service;
+
+import com.quickcart.ecommerce.entity.Order;
+import com.quickcart.ecommerce.entity.StockReservation;
+import com.quickcart.ecommerce.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Time-limited stock reservations (the "ledger").
+ *
+ * LOGIC:
+ * 1. Placing an order first writes one ACTIVE reservation per line, THEN takes the stock off each product
+ *    (conditional atomic update, no locks). Stock is therefore never held without a ledger row that can give it back.
+ * 2. The payment webhook marks the reservations COMMITTED - the stock is already gone, nothing else to do.
+ * 3. Failed payments, and a background sweeper for expired reservations, release them in two steps:
+ *    ACTIVE -> RELEASING (claimed by one node), stock given back, RELEASING -> RELEASED.
+ *    A release left half-done (node died, MongoDB error) stays RELEASING and the sweeper finishes it.
+ * Every status change is a conditional update on the current status, so two nodes can never release the same line twice.
+ * When it cannot be known whether a line's stock was taken (an error while taking it) the line is given back:
+ * a crash can over-count stock by that line, but never lose it.
+ */
+@Service
+@Slf4j
+public class ReservationService {
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${reservation.ttl-minutes:35}")
+    private long ttlMinutes;
+
+    @Value("${reservation.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    @Value("${reservation.releasing-timeout-seconds:300}")
+    private long releasingTimeoutSeconds;
+
+    public Date newExpiry() {
+        return new Date(System.currentTimeMillis() + ttlMinutes * 60_000);
+    }
+
+    /**
+     * Reserves every line of an order or nothing: if one product runs out, the lines already taken are given back.
+     */
+    public void reserve(String orderId, Map<String, Integer> quantities, Date expiresAt) {
+        List<StockReservation> reservations = new ArrayList<>();
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            StockReservation reservation = new StockReservation();
+            reservation.setOrderId(orderId);
+            reservation.setProductId(line.getKey());
+            reservation.setQuantity(line.getValue());
+            reservation.setStatus(StockReservation.ACTIVE);
+            reservation.setExpiresAt(expiresAt);
+            reservations.add(reservation);
+        }
+        reservations = reservationRepository.insert(reservations); // Nothing is taken if this fails
+
+        for (int i = 0; i < reservations.size(); i++) {
+            StockReservation reservation = reservations.get(i);
+            boolean taken;
+            try {
+                taken = productService.deductStock(reservation.getProductId(), reservation.getQuantity());
+            } catch (RuntimeException e) {
+                // This line may or may not have been taken: leave it ACTIVE so it is given back
+                abortReservation(orderId, reservations.subList(i + 1, reservations.size()));
+                throw e;
+            }
+            if (!taken) {
+                abortReservation(orderId, reservations.subList(i, reservations.size()));
+                throw new CheckoutRejectedException("Insufficient stock for product: " + reservation.getProductId());
+            }
+        }
+        log.info("Reserved {} lines for order {} until {}", reservations.size(), orderId, expiresAt);
+    }
+
+    // Lines never taken are dropped without touching stock; the ones already taken are released as usual
+    private void abortReservation(String orderId, List<StockReservation> notTaken) {
+        try {
+            List<String> ids = new ArrayList<>();
+            for (StockReservation reservation : notTaken) {
+                ids.add(reservation.getId());
+            }
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("id").in(ids).and("status").is(StockReservation.ACTIVE)),
+                    new Update().set("status", StockReservation.RELEASED),
+                    StockReservation.class);
+            release(orderId);
+        } catch (RuntimeException e) {
+            // The rows are still ACTIVE or RELEASING: the sweeper gives the stock back when they expire
+            log.error("Could not undo the reservation of order {}, left to the sweeper: {}", orderId, e.getMessage());
+        }
+    }
+
+    /**
+     * Payment succeeded: turns the order's ACTIVE reservations into COMMITTED ones.
+     * Returns the product IDs that were still reserved; anything else (expired, or an order placed
+     * before reservations existed) must still be deducted by the caller.
+     */
+    public Set<String> commit(String orderId) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("orderId").is(orderId).and("status").is(StockReservation.ACTIVE)),
+                new Update().set("status", StockReservation.COMMITTED),
+                StockReservation.class);
+
+        Set<String> committed = new HashSet<>();
+        for (StockReservation reservation : reservationRepository.findByOrderIdAndStatus(orderId, StockReservation.COMMITTED)) {
+            committed.add(reservation.getProductId());
+        }
+        return committed;
+    }
+
+    /**
+     * Payment failed or checkout could not start: gives back all stock still reserved for the order.
+     */
+    public void release(String orderId) {
+        List<StockReservation> claimed = new ArrayList<>();
+        for (StockReservation reservation : reservationRepository.findByOrderIdAndStatus(orderId, StockReservation.ACTIVE)) {
+            StockReservation released = claimForRelease(reservation.getId());
+            if (released != null) {
+                claimed.add(released);
+            }
+        }
+        giveBack(claimed);
+    }
+
+    /**
+     * Releases expired reservations and marks their still-Pending orders as "Expired".
+     * Also finishes releases that were claimed but never completed.
+     */
+    @Scheduled(fixedDelayString = "${reservation.sweep-interval-ms:60000}")
+    public void releaseExpired() {
+        finishStuckReleases();
+
+        List<StockReservation> expired = reservationRepository.findByStatusAndExpiresAtBefore(
+                StockReservation.ACTIVE, new Date(), PageRequest.of(0, sweepBatchSize));
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        List<StockReservation> claimed = new ArrayList<>();
+        Set<String> orderIds = new HashSet<>();
+        for (StockReservation reservation : expired) {
+            StockReservation released = claimForRelease(reservation.getId());
+            if (released != null) { // Another node (or the webhook) may have got there first
+                claimed.add(released);
+                orderIds.add(released.getOrderId());
+            }
+        }
+        giveBack(claimed);
+
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("id").in(orderIds).and("status").is("Pending")),
+                new Update().set("status", "Expired"),
+                Order.class);
+        log.info("Released {} expired reservations for {} orders", claimed.size(), orderIds.size());
+    }
+
+    private void finishStuckReleases() {
+        List<StockReservation> stuck = reservationRepository.findByStatusAndReleasingAtBefore(
+                StockReservation.RELEASING, new Date(System.currentTimeMillis() - releasingTimeoutSeconds * 1000),
+                PageRequest.of(0, sweepBatchSize));
+        List<StockReservation> claimed = new ArrayList<>();
+        for (StockReservation reservation : stuck) {
+            // Re-claimed on the releasingAt we read, so only one node finishes it
+            StockReservation released = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("id").is(reservation.getId())
+                            .and("status").is(StockReservation.RELEASING)
+                            .and("releasingAt").is(reservation.getReleasingAt())),
+                    new Update().set("releasingAt", new Date()),
+                    FindAndModifyOptions.options().returnNew(true),
+                    StockReservation.class);
+            if (released != null) {
+                claimed.add(released);
+            }
+        }
+        if (!claimed.isEmpty()) {
+            log.warn("Finishing {} reservation releases left RELEASING", claimed.size());
+            giveBack(claimed);
+        }
+    }
+
+    // ACTIVE -> RELEASING in one atomic step; null if it was no longer ACTIVE
+    private StockReservation claimForRelease(String reservationId) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(reservationId).and("status").is(StockReservation.ACTIVE)),
+                new Update().set("status", StockReservation.RELEASING).set("releasingAt", new Date()),
+                FindAndModifyOptions.options().returnNew(true),
+                StockReservation.class);
+    }
+
+    // Gives the stock back, then marks the rows RELEASED. If this fails they stay RELEASING for the sweeper.
+    private void giveBack(List<StockReservation> claimed) {
+        if (claimed.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> quantities = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        for (StockReservation reservation : claimed) {
+            quantities.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+            ids.add(reservation.getId());
+        }
+        productService.restoreStock(quantities);
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("id").in(ids).and("status").is(StockReservation.RELEASING)),
+                new Update().set("status", StockReservation.RELEASED),
+                StockReservation.class);
+    }
+}
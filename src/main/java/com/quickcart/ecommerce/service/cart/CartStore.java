@@ -0,0 +1,30 @@
+package com.quickcart.ecommerce.service.cart;
+
+import com.quickcart.ecommerce.entity.Cart;
+import com.quickcart.ecommerce.entity.ProductSnapshot;
+
+import java.util.Optional;
+
+/**
+ * Where carts live. "mongo" (default) writes every change straight to cartsData;
+ * "redis" keeps active carts in Redis and writes them behind to MongoDB (see RedisCartStore).
+ * Selected with the cart.store property.
+ */
+public interface CartStore {
+
+    Optional<Cart> find(String userId);
+
+    // Returns the updated cart
+    Cart addItem(String userId, ProductSnapshot product, int quantity);
+
+    // Returns the updated cart, or null if there was nothing to remove
+    Cart removeItem(String userId, String productId);
+
+    void clear(String userId);
+
+    // Makes sure MongoDB has the latest version of this cart (no-op when MongoDB is the store)
+    void flush(String userId);
+
+    // True when clear() is a plain MongoDB write, so it can run inside the checkout transaction
+    boolean clearsInTransaction();
+}
@@ -0,0 +1,59 @@
+package com.quickcart.ecommerce.service.cart;
+
+import com.quickcart.ecommerce.entity.Cart;
+import com.quickcart.ecommerce.entity.ProductSnapshot;
+import com.quickcart.ecommerce.repository.CartRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Optional;
+
+// Default store: every change is one atomic update on cartsData (see CartRepositoryCustom)
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "mongo", matchIfMissing = true)
+public class MongoCartStore implements CartStore {
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<Cart> find(String userId) {
+        return Optional.ofNullable(cartRepository.findByUserId(userId));
+    }
+
+    @Override
+    public Cart addItem(String userId, ProductSnapshot product, int quantity) {
+        return cartRepository.addItem(userId, product, quantity);
+    }
+
+    @Override
+    public Cart removeItem(String userId, String productId) {
+        return cartRepository.removeItem(userId, productId);
+    }
+
+    @Override
+    public void clear(String userId) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("userId").is(userId)),
+                new Update().set("items", new ArrayList<>()).set("totalPrice", 0L),
+                Cart.class);
+    }
+
+    @Override
+    public void flush(String userId) {
+        // Already in MongoDB
+    }
+
+    @Override
+    public boolean clearsInTransaction() {
+        return true;
+    }
+}
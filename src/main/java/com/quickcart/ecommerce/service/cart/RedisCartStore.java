@@ -0,0 +1,358 @@
+package com.quickcart.ecommerce.service.cart;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.quickcart.ecommerce.entity.Cart;
+import com.quickcart.ecommerce.entity.CartItem;
+import com.quickcart.ecommerce.entity.Product;
+import com.quickcart.ecommerce.entity.ProductSnapshot;
+import com.quickcart.ecommerce.service.ProductService;
+import com.quickcart.ecommerce.utills.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Hot carts in Redis, written behind to MongoDB.
+ *
+ * LOGIC:
+ * 1. An active cart is a Redis hash "cart:{userId}": productId -> quantity and "@productId" -> "unitPrice:name"
+ *    (the line's snapshot, taken when the product was added, exactly like the MongoDB store), plus a few "_" fields
+ *    (_loaded marks that the cart exists even when empty, _v counts changes, _id is the MongoDB cart ID).
+ * 2. The first access loads the cart from MongoDB; after that reads and writes are served by Redis only.
+ *    Each write is one Lua script: change the hash, bump _v, add the user to the "cart:dirty" set, return the cart.
+ * 3. Every cart.redis.flush-interval-ms a node pops a batch of dirty users (SPOP, so nodes never share one),
+ *    reads their carts in one pipeline and upserts them in ONE MongoDB bulk write. Checkout flushes the user's cart right away.
+ * 4. MongoDB stores the _v it was written with, and an older version never overwrites a newer one.
+ *
+ * Durability: MongoDB lags Redis by at most one flush interval. A failed flush puts the users back in the
+ * dirty set. Changes are lost only if Redis itself loses data before they are flushed, so run Redis with
+ * AOF persistence (appendfsync everysec) to bound that to about one second. Idle carts expire from Redis
+ * after cart.redis.ttl-hours and are read from MongoDB again.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cart.store", havingValue = "redis")
+public class RedisCartStore implements CartStore {
+
+    static final String KEY_PREFIX = "cart:";
+    static final String DIRTY_KEY = "cart:dirty";
+    private static final String LOADED = "_loaded";
+    private static final String VERSION = "_v";
+    private static final String CART_ID = "_id";
+    private static final String SNAPSHOT_PREFIX = "@";
+    private static final String STORED_VERSION = "storeVersion"; // Field on the cartsData document
+
+    // Populate the hash only if no other request did it first. ARGV: ttl, then field/value pairs
+    private static final RedisScript<Long> LOAD = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end\n" +
+            "redis.call('HSET', KEYS[1], unpack(ARGV, 2))\n" +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    // An empty reply means the cart is not in Redis yet (a loaded cart always has _loaded).
+    // Adding a product again refreshes its snapshot, like the MongoDB store does when the price changed
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ADD = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {} end\n" +
+            "redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "redis.call('HSET', KEYS[1], '@' .. ARGV[1], ARGV[5])\n" +
+            "redis.call('HINCRBY', KEYS[1], '_v', 1)\n" +
+            "redis.call('SADD', KEYS[2], ARGV[3])\n" +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[4])\n" +
+            "return redis.call('HGETALL', KEYS[1])", List.class);
+
+    // Same, and {"_none"} means the product was not in the cart
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REMOVE = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {} end\n" +
+            "if redis.call('HDEL', KEYS[1], ARGV[1]) == 0 then return {'_none'} end\n" +
+            "redis.call('HDEL', KEYS[1], '@' .. ARGV[1])\n" +
+            "redis.call('HINCRBY', KEYS[1], '_v', 1)\n" +
+            "redis.call('SADD', KEYS[2], ARGV[2])\n" +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3])\n" +
+            "return redis.call('HGETALL', KEYS[1])", List.class);
+
+    // Keeps only the "_" fields (drops every product line)
+    private static final RedisScript<Long> CLEAR = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end\n" +
+            "for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do\n" +
+            "  if string.sub(field, 1, 1) ~= '_' then redis.call('HDEL', KEYS[1], field) end\n" +
+            "end\n" +
+            "redis.call('HINCRBY', KEYS[1], '_v', 1)\n" +
+            "redis.call('SADD', KEYS[2], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Value("${cart.redis.ttl-hours:72}")
+    private long ttlHours;
+
+    @Value("${cart.redis.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    @Override
+    public Optional<Cart> find(String userId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(KEY_PREFIX + userId);
+        if (fields.isEmpty()) {
+            if (!load(userId)) {
+                return Optional.empty();
+            }
+            fields = redisTemplate.opsForHash().entries(KEY_PREFIX + userId);
+        }
+        return Optional.of(toCarts(Map.of(userId, fields)).get(userId));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Cart addItem(String userId, ProductSnapshot product, int quantity) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Object> reply = redisTemplate.execute(ADD, List.of(KEY_PREFIX + userId, DIRTY_KEY),
+                    product.getId(), String.valueOf(quantity), userId, ttlMillis(), encodeSnapshot(product));
+            if (reply != null && !reply.isEmpty()) {
+                return toCarts(Map.of(userId, toMap(reply))).get(userId);
+            }
+            if (!load(userId)) {
+                createEmpty(userId);
+            }
+        }
+        throw new RuntimeException("Could not load cart, please retry");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Cart removeItem(String userId, String productId) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Object> reply = redisTemplate.execute(REMOVE, List.of(KEY_PREFIX + userId, DIRTY_KEY),
+                    productId, userId, ttlMillis());
+            if (reply != null && reply.size() == 1) {
+                return null; // Product was not in the cart
+            }
+            if (reply != null && !reply.isEmpty()) {
+                return toCarts(Map.of(userId, toMap(reply))).get(userId);
+            }
+            if (!load(userId)) {
+                return null; // No cart at all
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void clear(String userId) {
+        Long cleared = redisTemplate.execute(CLEAR, List.of(KEY_PREFIX + userId, DIRTY_KEY), userId);
+        if (cleared == null || cleared == 0) { // Not in Redis: clear the MongoDB copy directly
+            mongoTemplate.updateFirst(Query.query(Criteria.where("userId").is(userId)),
+                    new Update().set("items", new ArrayList<>()).set("totalPrice", 0L), Cart.class);
+        }
+    }
+
+    @Override
+    public void flush(String userId) {
+        redisTemplate.opsForSet().remove(DIRTY_KEY, userId);
+        writeToMongo(List.of(userId));
+    }
+
+    // Redis can't take part in a MongoDB transaction: the cart is cleared once the order is committed
+    @Override
+    public boolean clearsInTransaction() {
+        return false;
+    }
+
+    /**
+     * Write-behind: flushes a batch of changed carts. Also runs on shutdown.
+     */
+    @Scheduled(fixedDelayString = "${cart.redis.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flushDirty() {
+        List<String> userIds = redisTemplate.opsForSet().pop(DIRTY_KEY, flushBatchSize);
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        try {
+            writeToMongo(userIds);
+            log.debug("Flushed {} carts to MongoDB", userIds.size());
+        } catch (RuntimeException e) {
+            log.warn("Cart flush failed, will retry {} carts: {}", userIds.size(), e.getMessage());
+        }
+    }
+
+    // Users must already be out of the dirty set; they are put back if MongoDB can't be written
+    @SuppressWarnings("unchecked")
+    private void writeToMongo(List<String> userIds) {
+        try {
+            List<Object> hashes = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    for (String userId : userIds) {
+                        operations.opsForHash().entries((K) (KEY_PREFIX + userId)); // K is String: the template is a StringRedisTemplate
+                    }
+                    return null;
+                }
+            });
+            Map<String, Map<Object, Object>> byUser = new LinkedHashMap<>();
+            for (int i = 0; i < userIds.size(); i++) {
+                Map<Object, Object> fields = (Map<Object, Object>) hashes.get(i);
+                if (fields != null && !fields.isEmpty()) { // Expired: MongoDB already has it
+                    byUser.put(userIds.get(i), fields);
+                }
+            }
+            if (byUser.isEmpty()) {
+                return;
+            }
+
+            Map<String, Cart> carts = toCarts(byUser);
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Cart.class);
+            carts.forEach((userId, cart) -> {
+                long version = Long.parseLong(String.valueOf(byUser.get(userId).getOrDefault(VERSION, "0")));
+                bulk.upsert(
+                        Query.query(Criteria.where("userId").is(userId).orOperator(
+                                Criteria.where(STORED_VERSION).lt(version),
+                                Criteria.where(STORED_VERSION).exists(false))),
+                        new Update().set("items", cart.getItems())
+                                .set("totalPrice", cart.getTotalPrice())
+                                .set(STORED_VERSION, version));
+            });
+            executeIgnoringStaleVersions(bulk);
+        } catch (RuntimeException e) {
+            redisTemplate.opsForSet().add(DIRTY_KEY, userIds.toArray(new String[0]));
+            throw e;
+        }
+    }
+
+    // A newer version already in MongoDB makes the upsert try an insert, which the unique userId index rejects: that's fine
+    private void executeIgnoringStaleVersions(BulkOperations bulk) {
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != 11000) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Copies the MongoDB cart into Redis; returns false if the user has no cart
+    private boolean load(String userId) {
+        Document document = mongoTemplate.findOne(Query.query(Criteria.where("userId").is(userId)), Document.class,
+                mongoTemplate.getCollectionName(Cart.class));
+        if (document == null) {
+            return false;
+        }
+        Cart cart = mongoTemplate.getConverter().read(Cart.class, document);
+        List<String> args = new ArrayList<>(List.of(ttlMillis(), LOADED, "1", CART_ID, cart.getId(),
+                VERSION, String.valueOf(document.get(STORED_VERSION) instanceof Number
+                        ? ((Number) document.get(STORED_VERSION)).longValue() : 0)));
+        for (CartItem item : cart.getItems()) {
+            args.add(item.getProduct().getId());
+            args.add(String.valueOf(item.getQuantity()));
+            args.add(SNAPSHOT_PREFIX + item.getProduct().getId());
+            args.add(encodeSnapshot(item.getProduct()));
+        }
+        redisTemplate.execute(LOAD, List.of(KEY_PREFIX + userId), args.toArray());
+        return true;
+    }
+
+    private void createEmpty(String userId) {
+        redisTemplate.execute(LOAD, List.of(KEY_PREFIX + userId), ttlMillis(), LOADED, "1", VERSION, "0");
+    }
+
+    // Builds carts from their hashes. Lines are priced from their own snapshot, never from the live product
+    private Map<String, Cart> toCarts(Map<String, Map<Object, Object>> hashes) {
+        // Lines written before snapshots were kept in Redis have none: those are looked up in ONE batch
+        List<String> withoutSnapshot = new ArrayList<>();
+        hashes.values().forEach(fields -> fields.keySet().forEach(field -> {
+            if (isLine(field.toString()) && !fields.containsKey(SNAPSHOT_PREFIX + field)) {
+                withoutSnapshot.add(field.toString());
+            }
+        }));
+        Map<String, Product> products = withoutSnapshot.isEmpty() ? Map.of() : productService.getByIds(withoutSnapshot);
+
+        Map<String, Cart> carts = new LinkedHashMap<>();
+        hashes.forEach((userId, fields) -> {
+            Cart cart = new Cart();
+            cart.setUserId(userId);
+            cart.setId((String) fields.get(CART_ID));
+            long total = 0;
+            for (Map.Entry<Object, Object> field : fields.entrySet()) {
+                String productId = field.getKey().toString();
+                if (!isLine(productId)) {
+                    continue;
+                }
+                Object snapshot = fields.get(SNAPSHOT_PREFIX + productId);
+                ProductSnapshot product;
+                if (snapshot != null) {
+                    product = decodeSnapshot(productId, snapshot.toString());
+                } else if (products.containsKey(productId)) {
+                    product = ProductSnapshot.of(products.get(productId));
+                } else {
+                    continue; // Old line whose product was deleted since
+                }
+                CartItem item = new CartItem();
+                item.setProduct(product);
+                item.setQuantity(Integer.parseInt(field.getValue().toString()));
+                cart.getItems().add(item);
+                total = Money.add(total, Money.lineTotal(item.getProduct().getUnitPrice(), item.getQuantity()));
+            }
+            cart.setTotalPrice(total);
+            carts.put(userId, cart);
+        });
+        return carts;
+    }
+
+    // Quantity fields only: not "_" metadata, not "@" snapshots
+    private static boolean isLine(String field) {
+        return !field.startsWith("_") && !field.startsWith(SNAPSHOT_PREFIX);
+    }
+
+    // "unitPrice:name" (the name may itself contain ':')
+    private static String encodeSnapshot(ProductSnapshot product) {
+        return product.getUnitPrice() + ":" + (product.getName() == null ? "" : product.getName());
+    }
+
+    private static ProductSnapshot decodeSnapshot(String productId, String value) {
+        int separator = value.indexOf(':');
+        return new ProductSnapshot(productId, value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+    }
+
+    private static Map<Object, Object> toMap(List<Object> flat) {
+        Map<Object, Object> fields = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < flat.size(); i += 2) {
+            fields.put(flat.get(i), flat.get(i + 1));
+        }
+        return fields;
+    }
+
+    private String ttlMillis() {
+        return String.valueOf(ttlHours * 3_600_000);
+    }
+}
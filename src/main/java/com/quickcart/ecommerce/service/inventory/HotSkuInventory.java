@@ -0,0 +1,27 @@
+package com.quickcart.ecommerce.service.inventory;
+
+import java.util.Map;
+
+/**
+ * Opt-in "hot SKU" mode for flash sales: stock of the products listed in {@code inventory.hot-skus}
+ * is held in memory (or in Redis) and taken from there on the order path instead of MongoDB.
+ * The changes pile up as pending deltas that ProductService flushes to MongoDB in batches.
+ */
+public interface HotSkuInventory {
+
+    boolean isHot(String productId);
+
+    // Takes quantity if enough stock is left; never goes below zero
+    boolean tryTake(String productId, int quantity);
+
+    void giveBack(String productId, int quantity);
+
+    // An admin set an absolute stock value in MongoDB: that value wins over anything not flushed yet
+    void reset(String productId, int stock);
+
+    // Returns the stock changes not written to MongoDB yet, and forgets them
+    Map<String, Integer> drainPending();
+
+    // The flush failed: put the drained changes back so the next flush retries them
+    void restorePending(Map<String, Integer> deltas);
+}
@@ -0,0 +1,87 @@
+package com.quickcart.ecommerce.service.inventory;
+
+import com.quickcart.ecommerce.entity.Product;
+import com.quickcart.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-node hot SKU mode: counters live in this JVM.
+ * Counters start from the MongoDB stock the first time a product is used (so a restart reconciles by itself).
+ * Durability: changes not flushed yet are lost if the process dies, so MongoDB can show up to one flush
+ * interval of sales too much stock. Use the "redis" mode when running more than one node.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.hot-sku.mode", havingValue = "local", matchIfMissing = true)
+public class LocalHotSkuInventory implements HotSkuInventory {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${inventory.hot-skus:}")
+    private Set<String> hotSkus;
+
+    private final int stripeCount = Runtime.getRuntime().availableProcessors();
+    private final Map<String, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isHot(String productId) {
+        return hotSkus.contains(productId);
+    }
+
+    @Override
+    public boolean tryTake(String productId, int quantity) {
+        if (!counter(productId).tryTake(quantity)) {
+            return false;
+        }
+        pending(productId).addAndGet(-quantity);
+        return true;
+    }
+
+    @Override
+    public void giveBack(String productId, int quantity) {
+        counter(productId).add(quantity);
+        pending(productId).addAndGet(quantity);
+    }
+
+    @Override
+    public void reset(String productId, int stock) {
+        counters.put(productId, new StripedStockCounter(stock, stripeCount));
+        pending.remove(productId);
+    }
+
+    @Override
+    public Map<String, Integer> drainPending() {
+        Map<String, Integer> deltas = new HashMap<>();
+        pending.forEach((productId, delta) -> {
+            int value = delta.getAndSet(0);
+            if (value != 0) {
+                deltas.put(productId, value);
+            }
+        });
+        return deltas;
+    }
+
+    @Override
+    public void restorePending(Map<String, Integer> deltas) {
+        deltas.forEach((productId, delta) -> pending(productId).addAndGet(delta));
+    }
+
+    private StripedStockCounter counter(String productId) {
+        return counters.computeIfAbsent(productId, id -> new StripedStockCounter(
+                productRepository.findById(id).map(Product::getStock).orElse(0), stripeCount));
+    }
+
+    private AtomicInteger pending(String productId) {
+        return pending.computeIfAbsent(productId, id -> new AtomicInteger());
+    }
+}
@@ -0,0 +1,116 @@
+package com.quickcart.ecommerce.service.inventory;
+
+import com.quickcart.ecommerce.entity.Product;
+import com.quickcart.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Multi-node hot SKU mode: one Redis counter per product ("inventory:hot:{id}") shared by all nodes,
+ * plus a hash of changes not yet written to MongoDB ("inventory:hot:pending").
+ * Every operation is a Lua script, so check-and-decrement and its pending delta happen atomically.
+ * Reconciliation: the pending hash survives restarts and crashes, so whichever node flushes next writes it to MongoDB.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.hot-sku.mode", havingValue = "redis")
+public class RedisHotSkuInventory implements HotSkuInventory {
+
+    private static final String COUNTER_PREFIX = "inventory:hot:";
+    private static final String PENDING_KEY = "inventory:hot:pending";
+
+    private static final RedisScript<Long> TAKE = new DefaultRedisScript<>(
+            "local stock = tonumber(redis.call('GET', KEYS[1]))\n" +
+            "if stock == nil or stock < tonumber(ARGV[1]) then return 0 end\n" +
+            "redis.call('DECRBY', KEYS[1], ARGV[1])\n" +
+            "redis.call('HINCRBY', KEYS[2], ARGV[2], -tonumber(ARGV[1]))\n" +
+            "return 1", Long.class);
+
+    private static final RedisScript<Long> GIVE_BACK = new DefaultRedisScript<>(
+            "redis.call('INCRBY', KEYS[1], ARGV[1])\n" +
+            "redis.call('HINCRBY', KEYS[2], ARGV[2], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    private static final RedisScript<Long> RESET = new DefaultRedisScript<>(
+            "redis.call('SET', KEYS[1], ARGV[1])\n" +
+            "redis.call('HDEL', KEYS[2], ARGV[2])\n" +
+            "return 1", Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DRAIN = new DefaultRedisScript<>(
+            "local all = redis.call('HGETALL', KEYS[1])\n" +
+            "redis.call('DEL', KEYS[1])\n" +
+            "return all", List.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${inventory.hot-skus:}")
+    private Set<String> hotSkus;
+
+    @Override
+    public boolean isHot(String productId) {
+        return hotSkus.contains(productId);
+    }
+
+    @Override
+    public boolean tryTake(String productId, int quantity) {
+        initIfMissing(productId);
+        Long taken = redisTemplate.execute(TAKE, List.of(COUNTER_PREFIX + productId, PENDING_KEY),
+                String.valueOf(quantity), productId);
+        return taken != null && taken == 1;
+    }
+
+    @Override
+    public void giveBack(String productId, int quantity) {
+        initIfMissing(productId); // Else INCRBY would create a counter holding only the returned quantity
+        redisTemplate.execute(GIVE_BACK, List.of(COUNTER_PREFIX + productId, PENDING_KEY),
+                String.valueOf(quantity), productId);
+    }
+
+    @Override
+    public void reset(String productId, int stock) {
+        redisTemplate.execute(RESET, List.of(COUNTER_PREFIX + productId, PENDING_KEY),
+                String.valueOf(stock), productId);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Integer> drainPending() {
+        List<Object> flat = redisTemplate.execute(DRAIN, List.of(PENDING_KEY));
+        Map<String, Integer> deltas = new HashMap<>();
+        for (int i = 0; flat != null && i + 1 < flat.size(); i += 2) {
+            int delta = Integer.parseInt(flat.get(i + 1).toString());
+            if (delta != 0) {
+                deltas.put(flat.get(i).toString(), delta);
+            }
+        }
+        return deltas;
+    }
+
+    @Override
+    public void restorePending(Map<String, Integer> deltas) {
+        deltas.forEach((productId, delta) -> redisTemplate.opsForHash().increment(PENDING_KEY, productId, delta));
+    }
+
+    // The counter is created once from MongoDB; after that Redis is the source of truth for this product
+    private void initIfMissing(String productId) {
+        String key = COUNTER_PREFIX + productId;
+        if (Boolean.FALSE.equals(redisTemplate.hasKey(key))) {
+            int stock = productRepository.findById(productId).map(Product::getStock).orElse(0);
+            redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(stock));
+        }
+    }
+}
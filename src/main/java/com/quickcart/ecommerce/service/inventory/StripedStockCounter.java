@@ -0,0 +1,82 @@
+package com.quickcart.ecommerce.service.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free stock counter split into stripes so thousands of concurrent buyers don't all CAS the same value.
+ * A buyer first tries one random stripe; only when no single stripe has enough does it gather from several.
+ */
+class StripedStockCounter {
+
+    private final AtomicInteger[] stripes;
+
+    StripedStockCounter(int stock, int stripeCount) {
+        stripes = new AtomicInteger[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            // Spread the stock evenly, the first stripes get the remainder
+            stripes[i] = new AtomicInteger(stock / stripeCount + (i < stock % stripeCount ? 1 : 0));
+        }
+    }
+
+    boolean tryTake(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            if (takeFromStripe(stripes[(start + i) % stripes.length], quantity)) {
+                return true;
+            }
+        }
+        return gather(quantity, start);
+    }
+
+    private static boolean takeFromStripe(AtomicInteger stripe, int quantity) {
+        while (true) {
+            int current = stripe.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (stripe.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    // Slow path: take what each stripe has until we have enough, give everything back if the total is short
+    private boolean gather(int quantity, int start) {
+        int[] taken = new int[stripes.length];
+        int missing = quantity;
+        for (int i = 0; i < stripes.length && missing > 0; i++) {
+            int index = (start + i) % stripes.length;
+            while (true) {
+                int current = stripes[index].get();
+                int take = Math.min(current, missing);
+                if (take <= 0 || stripes[index].compareAndSet(current, current - take)) {
+                    taken[index] = Math.max(take, 0);
+                    missing -= taken[index];
+                    break;
+                }
+            }
+        }
+        if (missing == 0) {
+            return true;
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            if (taken[i] > 0) {
+                stripes[i].addAndGet(taken[i]);
+            }
+        }
+        return false;
+    }
+
+    void add(int quantity) {
+        stripes[ThreadLocalRandom.current().nextInt(stripes.length)].addAndGet(quantity);
+    }
+
+    int total() {
+        int total = 0;
+        for (AtomicInteger stripe : stripes) {
+            total += stripe.get();
+        }
+        return total;
+    }
+}
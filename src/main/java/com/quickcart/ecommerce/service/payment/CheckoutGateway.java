@@ -0,0 +1,17 @@
+package com.quickcart.ecommerce.service.payment;
+
+import com.quickcart.ecommerce.entity.ProductRequest;
+import com.quickcart.ecommerce.entity.StripeResponse;
+
+/**
+ * Creates the hosted checkout page for an order.
+ * payment.gateway=stripe (default) calls Stripe, payment.gateway=stub answers locally for offline load tests.
+ */
+public interface CheckoutGateway {
+
+    /**
+     * Returns status "SUCCESS" with the session, or "ERROR" with a message when the provider refused the request.
+     * Network problems and provider outages are thrown as {@link CheckoutUnavailableException}.
+     */
+    StripeResponse createSession(ProductRequest productRequest, String orderId, String userId);
+}
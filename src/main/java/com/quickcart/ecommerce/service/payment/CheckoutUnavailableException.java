@@ -0,0 +1,15 @@
+package com.quickcart.ecommerce.service.payment;
+
+/**
+ * The payment provider could not be reached, timed out, failed on its side, or the circuit breaker is open.
+ */
+public class CheckoutUnavailableException extends RuntimeException {
+
+    public CheckoutUnavailableException(String message) {
+        super(message);
+    }
+
+    public CheckoutUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
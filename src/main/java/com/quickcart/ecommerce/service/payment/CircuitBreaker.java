@@ -0,0 +1,54 @@
+package com.quickcart.ecommerce.service.payment;
+
+/**
+ * Consecutive-failure circuit breaker.
+ *
+ * LOGIC:
+ * 1. CLOSED: calls go through; failureThreshold failures in a row open the circuit.
+ * 2. OPEN: calls are refused right away for openMillis (no thread waits on a provider that is down).
+ * 3. Then ONE trial call is let through (half-open): success closes the circuit, failure opens it again.
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private int consecutiveFailures;
+    private long openUntil; // 0 = closed
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (openUntil == 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() < openUntil || trialInFlight) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    // Cheap check for callers that want to fail fast before doing any work
+    public synchronized boolean isOpen() {
+        return openUntil != 0 && (System.currentTimeMillis() < openUntil || trialInFlight);
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        openUntil = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (trialInFlight || consecutiveFailures >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+        trialInFlight = false;
+    }
+}
@@ -0,0 +1,104 @@
+package com.quickcart.ecommerce.service.payment;
+
+import com.quickcart.ecommerce.entity.ProductRequest;
+import com.quickcart.ecommerce.entity.StripeResponse;
+import com.stripe.exception.StripeException;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.checkout.SessionCreateParams;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stripe Checkout. The API key and timeouts are passed per request (RequestOptions) instead of
+ * setting the global Stripe.apiKey on every call.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stripe", matchIfMissing = true)
+public class StripeCheckoutGateway implements CheckoutGateway {
+
+    @Value("${stripe.secretKey}")
+    private String secretKey;
+
+    @Value("${payment.stripe.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${payment.stripe.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
+    @Value("${payment.stripe.max-network-retries:1}")
+    private int maxNetworkRetries;
+
+    @Override
+    public StripeResponse createSession(ProductRequest productRequest, String orderId, String userId) {
+        // Create product data
+        SessionCreateParams.LineItem.PriceData.ProductData productData =
+                SessionCreateParams.LineItem.PriceData.ProductData.builder()
+                        .setName(productRequest.getName())
+                        .build();
+
+        // Create price data
+        SessionCreateParams.LineItem.PriceData priceData =
+                SessionCreateParams.LineItem.PriceData.builder()
+                        .setCurrency(productRequest.getCurrency() != null ? productRequest.getCurrency() : "USD")
+                        .setUnitAmount(productRequest.getAmount())
+                        .setProductData(productData)
+                        .build();
+
+        // Create line item
+        SessionCreateParams.LineItem lineItem =
+                SessionCreateParams.LineItem.builder()
+                        .setQuantity(productRequest.getQuantity())
+                        .setPriceData(priceData)
+                        .build();
+
+        // Create session parameters with metadata for order tracking
+        SessionCreateParams.Builder paramsBuilder =
+                SessionCreateParams.builder()
+                        .setMode(SessionCreateParams.Mode.PAYMENT)
+                        .setSuccessUrl("http://localhost:8080/success?session_id={CHECKOUT_SESSION_ID}")
+                        .setCancelUrl("http://localhost:8080/cancel")
+                        .addLineItem(lineItem)
+                        .putMetadata("orderId", orderId) // Store orderId in metadata
+                        .putMetadata("userId", userId); // Store userId in metadata
+
+        // Close the checkout when the stock reservation ends (Stripe only accepts 30 minutes to 24 hours)
+        if (productRequest.getExpiresAt() != null) {
+            long now = System.currentTimeMillis() / 1000;
+            long expiresAt = Math.min(Math.max(productRequest.getExpiresAt(), now + 31 * 60), now + 24 * 60 * 60);
+            paramsBuilder.setExpiresAt(expiresAt);
+        }
+        SessionCreateParams params = paramsBuilder.build();
+
+        // One session per order, even if this call is retried (by Stripe's client or by us)
+        RequestOptions options = RequestOptions.builder()
+                .setApiKey(secretKey)
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs)
+                .setMaxNetworkRetries(maxNetworkRetries)
+                .setIdempotencyKey("checkout-" + orderId)
+                .build();
+
+        Session session;
+        try {
+            session = Session.create(params, options);
+        } catch (StripeException e) {
+            Integer statusCode = e.getStatusCode();
+            if (statusCode == null || statusCode >= 500 || statusCode == 429) {
+                throw new CheckoutUnavailableException("Stripe unavailable: " + e.getMessage(), e);
+            }
+            return StripeResponse.builder()
+                    .status("ERROR")
+                    .message("Failed to create session: " + e.getMessage())
+                    .build();
+        }
+
+        return StripeResponse.builder()
+                .status("SUCCESS")
+                .message("Payment session created")
+                .sessionId(session.getId())
+                .sessionUrl(session.getUrl())
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.quickcart.ecommerce.service.payment;
+
+import com.quickcart.ecommerce.entity.ProductRequest;
+import com.quickcart.ecommerce.entity.StripeResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for Stripe, for load tests without network access. NEVER enable in production.
+ * Simulates the provider's latency and, optionally, a share of outages (to exercise the circuit breaker).
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stub")
+public class StubCheckoutGateway implements CheckoutGateway {
+
+    @Value("${payment.stub.latency-ms:300}")
+    private long latencyMs;
+
+    @Value("${payment.stub.failure-rate:0}")
+    private double failureRate;
+
+    @PostConstruct
+    void warn() {
+        log.warn("### STUB PAYMENT GATEWAY ENABLED: no real checkout sessions are created");
+    }
+
+    @Override
+    public StripeResponse createSession(ProductRequest productRequest, String orderId, String userId) {
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckoutUnavailableException("Interrupted");
+        }
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new CheckoutUnavailableException("Simulated outage");
+        }
+
+        String sessionId = "cs_stub_" + UUID.randomUUID().toString().replace("-", "");
+        return StripeResponse.builder()
+                .status("SUCCESS")
+                .message("Payment session created (stub)")
+                .sessionId(sessionId)
+                .sessionUrl("http://localhost:8080/success?session_id=" + sessionId)
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.quickcart.ecommerce.service.webhook;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.Data;
+
+import java.io.IOException;
+
+/**
+ * The few fields of a Stripe event we act on, read in ONE streaming pass over the raw payload.
+ * Everything else (line items, customer details, ...) is skipped without building any objects.
+ */
+@Data
+public class StripeEventFields {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private String eventId;       // id
+    private String type;          // type
+    private String objectId;      // data.object.id (the checkout session ID)
+    private String paymentStatus; // data.object.payment_status
+    private String orderId;       // data.object.metadata.orderId (set by us at checkout)
+
+    public static StripeEventFields parse(byte[] payload) throws IOException {
+        StripeEventFields fields = new StripeEventFields();
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Event is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if ("id".equals(name)) {
+                    fields.eventId = parser.getValueAsString();
+                } else if ("type".equals(name)) {
+                    fields.type = parser.getValueAsString();
+                } else if ("data".equals(name)) {
+                    readData(parser, fields);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return fields;
+    }
+
+    // data: { object: {...} }
+    private static void readData(JsonParser parser, StripeEventFields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("object".equals(name) && parser.currentToken() == JsonToken.START_OBJECT) {
+                readObject(parser, fields);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    // data.object: { id, payment_status, metadata: {...} }
+    private static void readObject(JsonParser parser, StripeEventFields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("id".equals(name)) {
+                fields.objectId = parser.getValueAsString();
+            } else if ("payment_status".equals(name)) {
+                fields.paymentStatus = parser.getValueAsString();
+            } else if ("metadata".equals(name)) {
+                readMetadata(parser, fields);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readMetadata(JsonParser parser, StripeEventFields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("orderId".equals(name)) {
+                String orderId = parser.getValueAsString();
+                fields.orderId = orderId == null || orderId.isEmpty() ? null : orderId;
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
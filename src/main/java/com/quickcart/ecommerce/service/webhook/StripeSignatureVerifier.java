@@ -0,0 +1,89 @@
+package com.quickcart.ecommerce.service.webhook;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Checks the Stripe-Signature header ("t=<timestamp>,v1=<hex hmac>[,v1=...]") against the raw request bytes:
+ * HMAC-SHA256 of "<timestamp>.<payload>" with the endpoint secret, compared in constant time.
+ * Same rules as Stripe's Webhook.constructEvent, without parsing the payload into Stripe objects.
+ */
+@Component
+public class StripeSignatureVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${stripe.webhookSecret}")
+    private String webhookSecret;
+
+    @Value("${stripe.webhook.tolerance-seconds:300}")
+    private long toleranceSeconds;
+
+    private SecretKeySpec key;
+    // Mac is not thread-safe; one per thread avoids the provider lookup on every event
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    @PostConstruct
+    void init() {
+        key = new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    public boolean verify(byte[] payload, String signatureHeader) {
+        if (signatureHeader == null) {
+            return false;
+        }
+        long timestamp = -1;
+        for (String part : signatureHeader.split(",")) {
+            if (part.startsWith("t=")) {
+                try {
+                    timestamp = Long.parseLong(part.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        if (timestamp < 0 || Math.abs(System.currentTimeMillis() / 1000 - timestamp) > toleranceSeconds) {
+            return false; // Missing timestamp, or a replay of an old delivery
+        }
+
+        byte[] expected = sign(timestamp, payload);
+        for (String part : signatureHeader.split(",")) {
+            if (part.startsWith("v1=")) {
+                byte[] actual;
+                try {
+                    actual = HexFormat.of().parseHex(part.substring(3).trim());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                if (MessageDigest.isEqual(expected, actual)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    byte[] sign(long timestamp, byte[] payload) {
+        Mac mac = macs.get();
+        mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+        return mac.doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.quickcart.ecommerce.service.webhook;
+
+import com.quickcart.ecommerce.entity.WebhookEvent;
+import com.quickcart.ecommerce.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies one Stripe event to our orders. Runs on the webhook workers, never on the request thread.
+ * Works on the fields extracted when the event arrived (see StripeEventFields), the payload is not parsed again.
+ * Exceptions are NOT swallowed: they make WebhookQueueService retry the event.
+ */
+@Component
+@Slf4j
+public class StripeWebhookHandler {
+
+    @Autowired
+    private OrderService orderService;
+
+    public void handle(WebhookEvent event) {
+        String eventType = event.getType() == null ? "" : event.getType();
+
+        // Handle different event types
+        if (eventType.equals("checkout.session.completed")) {
+            handleCheckoutSessionCompleted(event);
+        } else if (eventType.equals("checkout.session.async_payment_succeeded")) {
+            handleAsyncPaymentSucceeded(event);
+        } else if (eventType.equals("checkout.session.async_payment_failed")) {
+            handleAsyncPaymentFailed(event);
+        } else if (eventType.equals("checkout.session.expired")) {
+            handleCheckoutSessionExpired(event);
+        } else if (eventType.equals("payment_intent.succeeded")) {
+            log.info("Payment succeeded for event");
+        } else if (eventType.equals("payment_intent.payment_failed")) {
+            log.warn("Payment failed for event");
+        } else {
+            log.info("Unhandled event type: {}", eventType);
+        }
+    }
+
+    private void handleCheckoutSessionCompleted(WebhookEvent event) {
+        String orderId = event.getOrderId();
+        String paymentStatus = event.getPaymentStatus();
+
+        log.info("Checkout session completed: {}, payment status: {}", event.getObjectId(), paymentStatus);
+
+        if (orderId == null) {
+            log.error("No orderId found in session metadata");
+            return;
+        }
+        if ("paid".equals(paymentStatus)) {
+            orderService.updateOrderStatusToPaid(orderId);
+            log.info("Order {} status updated to PAID successfully", orderId);
+        } else {
+            log.warn("Payment not completed yet for order {}, status: {}", orderId, paymentStatus);
+        }
+    }
+
+    private void handleAsyncPaymentSucceeded(WebhookEvent event) {
+        String orderId = event.getOrderId();
+        if (orderId != null) {
+            log.info("Async payment succeeded for order {}", orderId);
+            orderService.updateOrderStatusToPaid(orderId);
+            log.info("Order {} status updated to Paid (async)", orderId);
+        }
+    }
+
+    private void handleAsyncPaymentFailed(WebhookEvent event) {
+        String orderId = event.getOrderId();
+        if (orderId != null) {
+            log.warn("❌ Async payment failed for order {}", orderId);
+            orderService.markPaymentFailed(orderId, "Payment Failed"); // Also releases reserved stock
+            log.info("⚠️  Order {} status updated to Payment Failed", orderId);
+        }
+    }
+
+    private void handleCheckoutSessionExpired(WebhookEvent event) {
+        String orderId = event.getOrderId();
+        if (orderId != null) {
+            log.info("Checkout session expired for order {}, releasing reserved stock", orderId);
+            orderService.markPaymentFailed(orderId, "Expired");
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.quickcart.ecommerce.service.webhook;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.quickcart.ecommerce.entity.WebhookEvent;
+import com.quickcart.ecommerce.repository.WebhookEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable queue of Stripe webhooks in the "webhookEvents" collection.
+ *
+ * LOGIC:
+ * 1. enqueue(): the controller stores the verified event as QUEUED and answers Stripe right away.
+ *    Redeliveries are dropped: first by a bounded in-memory set of recent event IDs (no database call at all),
+ *    then by the unique index on eventId (duplicates seen by another node, or before a restart).
+ * 2. poll(): every node claims due events oldest first (one atomic findAndModify each, with a lease) while it has free workers.
+ *    A claimed event may wait in its lane, so the lease is renewed when it actually starts (conditional on the lease
+ *    we got): if it ran out meanwhile and another node took the event over, this node skips it instead of running it twice.
+ * 3. Events are run on "lanes" (single-thread executors) picked by order ID, so events of one order run in arrival order.
+ *    An event whose order still has an older unfinished event (claimed by another node) is put back for a moment.
+ * 4. A failed event is retried with exponential backoff; after webhook.max-attempts it becomes DEAD (see the admin view).
+ * 5. If a node dies mid-event the lease runs out and another node claims the event again.
+ */
+@Service
+@Slf4j
+public class WebhookQueueService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+
+    @Autowired
+    private StripeWebhookHandler handler;
+
+    @Value("${webhook.workers:4}")
+    private int workers;
+
+    @Value("${webhook.max-in-flight:100}")
+    private int maxInFlight;
+
+    @Value("${webhook.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${webhook.backoff.initial-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${webhook.backoff.max-ms:600000}")
+    private long maxBackoffMs;
+
+    @Value("${webhook.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${webhook.dedup.recent-ids:10000}")
+    private long recentIdsSize;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private ExecutorService[] lanes;
+    private Cache<String, Boolean> recentEventIds; // Event IDs this node already stored
+
+    @PostConstruct
+    void init() {
+        recentEventIds = Caffeine.newBuilder().maximumSize(recentIdsSize).build();
+        lanes = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            String name = "webhook-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(30, TimeUnit.SECONDS); // Unfinished events are picked up again after their lease
+        }
+    }
+
+    /**
+     * Stores a verified event; empty if this event was already received.
+     * Throws if MongoDB is unavailable, so Stripe gets an error and delivers it again.
+     */
+    public Optional<WebhookEvent> enqueue(String payload, StripeEventFields fields) {
+        String eventId = fields.getEventId();
+        if (eventId != null && recentEventIds.getIfPresent(eventId) != null) {
+            return Optional.empty();
+        }
+
+        Date now = new Date();
+        WebhookEvent event = new WebhookEvent();
+        event.setEventId(eventId);
+        event.setType(fields.getType());
+        event.setOrderId(fields.getOrderId());
+        event.setObjectId(fields.getObjectId());
+        event.setPaymentStatus(fields.getPaymentStatus());
+        event.setPayload(payload);
+        event.setStatus(WebhookEvent.QUEUED);
+        event.setReceivedAt(now);
+        event.setNextAttemptAt(now);
+        try {
+            event = webhookEventRepository.insert(event);
+        } catch (DuplicateKeyException e) {
+            event = null;
+        }
+        if (eventId != null) {
+            recentEventIds.put(eventId, Boolean.TRUE);
+        }
+        return Optional.ofNullable(event);
+    }
+
+    @Scheduled(fixedDelayString = "${webhook.poll-interval-ms:500}")
+    public void poll() {
+        while (inFlight.get() < maxInFlight) {
+            WebhookEvent event = claimNext();
+            if (event == null) {
+                return;
+            }
+            inFlight.incrementAndGet();
+            String laneKey = event.getOrderId() != null ? event.getOrderId() : event.getId();
+            lanes[Math.floorMod(laneKey.hashCode(), lanes.length)].execute(() -> {
+                try {
+                    process(event);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    // Oldest due event, or one whose lease ran out (its node died), switched to PROCESSING in one atomic step
+    private WebhookEvent claimNext() {
+        Date now = new Date();
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where("status").is(WebhookEvent.QUEUED).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(WebhookEvent.PROCESSING).and("lockedUntil").lt(now)))
+                .with(Sort.by(Sort.Direction.ASC, "_id"));
+        Update update = new Update()
+                .set("status", WebhookEvent.PROCESSING)
+                .set("lockedUntil", new Date(now.getTime() + leaseSeconds * 1000))
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), WebhookEvent.class);
+    }
+
+    private void process(WebhookEvent event) {
+        try {
+            if (!renewLease(event)) {
+                log.info("Lease on webhook event {} was taken over while it waited, skipping", event.getEventId());
+                return;
+            }
+            if (olderEventPending(event)) {
+                // Another node is still working on an earlier event of this order: try again shortly, not counted as a failure
+                finish(event, new Update()
+                        .set("status", WebhookEvent.QUEUED)
+                        .set("nextAttemptAt", new Date(System.currentTimeMillis() + initialBackoffMs))
+                        .inc("attempts", -1));
+                return;
+            }
+            if (event.getObjectId() == null && event.getPayload() != null) {
+                // Stored before the fields were extracted on arrival
+                StripeEventFields fields = StripeEventFields.parse(event.getPayload().getBytes(StandardCharsets.UTF_8));
+                event.setOrderId(fields.getOrderId());
+                event.setObjectId(fields.getObjectId());
+                event.setPaymentStatus(fields.getPaymentStatus());
+            }
+            handler.handle(event);
+            finish(event, new Update().set("status", WebhookEvent.DONE).set("doneAt", new Date()).unset("lockedUntil"));
+        } catch (Exception e) {
+            fail(event, e);
+        }
+    }
+
+    // Restarts the lease now that the event runs; false if we no longer hold it
+    private boolean renewLease(WebhookEvent event) {
+        Date lockedUntil = new Date(System.currentTimeMillis() + leaseSeconds * 1000);
+        boolean held = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(event.getId())
+                        .and("status").is(WebhookEvent.PROCESSING)
+                        .and("lockedUntil").is(event.getLockedUntil())),
+                new Update().set("lockedUntil", lockedUntil),
+                WebhookEvent.class).getModifiedCount() > 0;
+        if (held) {
+            event.setLockedUntil(lockedUntil); // finish() matches on it
+        }
+        return held;
+    }
+
+    private boolean olderEventPending(WebhookEvent event) {
+        if (event.getOrderId() == null) {
+            return false;
+        }
+        return mongoTemplate.exists(Query.query(Criteria.where("orderId").is(event.getOrderId())
+                .and("_id").lt(new ObjectId(event.getId()))
+                .and("status").in(WebhookEvent.QUEUED, WebhookEvent.PROCESSING)), WebhookEvent.class);
+    }
+
+    private void fail(WebhookEvent event, Exception e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        try {
+            if (event.getAttempts() >= maxAttempts) {
+                log.error("Webhook event {} ({}) failed {} times, moved to dead letters: {}",
+                        event.getEventId(), event.getType(), event.getAttempts(), error);
+                finish(event, new Update().set("status", WebhookEvent.DEAD).set("lastError", error).unset("lockedUntil"));
+                return;
+            }
+            long delay = backoffMillis(event.getAttempts());
+            log.warn("Webhook event {} ({}) failed (attempt {}), retrying in {} ms: {}",
+                    event.getEventId(), event.getType(), event.getAttempts(), delay, error);
+            finish(event, new Update()
+                    .set("status", WebhookEvent.QUEUED)
+                    .set("nextAttemptAt", new Date(System.currentTimeMillis() + delay))
+                    .set("lastError", error)
+                    .unset("lockedUntil"));
+        } catch (RuntimeException updateFailure) {
+            // The lease runs out and the event is retried anyway
+            log.error("Could not record failure of webhook event {}: {}", event.getEventId(), updateFailure.getMessage());
+        }
+    }
+
+    // Exponential backoff with jitter: initial + random(0, min(max, initial * 2^(attempt-1)))
+    private long backoffMillis(int attempt) {
+        long ceiling = initialBackoffMs << Math.min(attempt - 1, 30);
+        ceiling = Math.min(ceiling <= 0 ? maxBackoffMs : ceiling, maxBackoffMs);
+        return initialBackoffMs + ThreadLocalRandom.current().nextLong(ceiling);
+    }
+
+    // Only if we still hold the event (a lease that ran out may have been taken over)
+    private void finish(WebhookEvent event, Update update) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(event.getId())
+                        .and("status").is(WebhookEvent.PROCESSING)
+                        .and("lockedUntil").is(event.getLockedUntil())),
+                update, WebhookEvent.class);
+    }
+
+    public List<WebhookEvent> getDeadEvents(int limit) {
+        return webhookEventRepository.findByStatusOrderByIdDesc(WebhookEvent.DEAD, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Puts a DEAD event back in the queue with a fresh set of attempts. Empty if it was not DEAD.
+     */
+    public Optional<WebhookEvent> retryDead(String id) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(id).and("status").is(WebhookEvent.DEAD)),
+                new Update()
+                        .set("status", WebhookEvent.QUEUED)
+                        .set("attempts", 0)
+                        .set("nextAttemptAt", new Date()),
+                FindAndModifyOptions.options().returnNew(true),
+                WebhookEvent.class));
+    }
+}
@@ -1,48 +1,109 @@
 package com.quickcart.ecommerce.utills;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.quickcart.ecommerce.security.AuthenticatedUser;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Issues and verifies the login tokens.
+ * The signing key and the parser are built once; a token is parsed and verified (signature AND expiry) in one call,
+ * and recently verified tokens are remembered so a client's repeated requests skip the HMAC and JSON work.
+ */
 @Component
 public class JwtUtil {
 
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLES_CLAIM = "roles";
+
     @Value("${jwt.secret}")
     private String SECRET_KEY;
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
-    }
 
-    public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject();
-    }
+    @Value("${security.jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheSize;
+
+    @Value("${security.jwt.verified-cache.ttl-seconds:60}")
+    private long verifiedCacheTtlSeconds;
+
+    private SecretKey signingKey;
+    private JwtParser parser; // Thread-safe and immutable, shared by all requests
+    private Cache<String, VerifiedToken> verifiedTokens;
 
-    public Date extractExpiration(String token) {
-        return extractAllClaims(token).getExpiration();
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        parser = Jwts.parser().verifyWith(signingKey).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(verifiedCacheTtlSeconds))
+                .build();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * The token carries the user ID and roles, so requests can be authenticated without loading the user.
+     */
+    public String generateToken(AuthenticatedUser user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId());
+        claims.put(ROLES_CLAIM, user.getRoles());
+        return createToken(claims, user.getUsername());
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Parses and verifies the token once: the claims if the signature is valid and it has not expired, otherwise null.
+     */
+    public Claims verify(String token) {
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload(); // Rejects expired tokens too
+            return claims.getSubject() != null ? claims : null;
+        } catch (Exception e) {
+            return null;
+        }
     }
 
-    public String generateToken(String username) {
-        Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, username);
+    /**
+     * The user described by a valid token, or null if the token is invalid or expired.
+     * Tokens issued before the claims existed come back with a null ID (the caller must load the user).
+     */
+    public AuthenticatedUser parseUser(String token) {
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            if (cached.expiresAt > System.currentTimeMillis()) {
+                return cached.user;
+            }
+            verifiedTokens.invalidate(token);
+            return null;
+        }
+
+        Claims claims = verify(token);
+        if (claims == null) {
+            return null; // Invalid tokens are never cached
+        }
+        List<String> roles = new ArrayList<>();
+        Object rawRoles = claims.get(ROLES_CLAIM);
+        if (rawRoles instanceof List) {
+            for (Object role : (List<?>) rawRoles) {
+                roles.add(String.valueOf(role));
+            }
+        }
+        AuthenticatedUser user = new AuthenticatedUser(claims.get(USER_ID_CLAIM, String.class), claims.getSubject(), null, roles);
+        long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        verifiedTokens.put(token, new VerifiedToken(user, expiresAt));
+        return user;
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
@@ -51,16 +112,18 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60)) // 60 minutes expiration
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public Boolean validateToken(String token) {
-        try {
-            Claims claims = extractAllClaims(token);
-            return claims.getSubject() != null && !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
+    // A cached entry never outlives the token's own expiry
+    private static final class VerifiedToken {
+        final AuthenticatedUser user;
+        final long expiresAt;
+
+        VerifiedToken(AuthenticatedUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
         }
     }
-}
\ No newline at end of file
+}
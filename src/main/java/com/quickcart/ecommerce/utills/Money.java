@@ -0,0 +1,36 @@
+package com.quickcart.ecommerce.utills;
+
+import java.math.BigDecimal;
+
+/**
+ * Money is a primitive long of minor units (paise for INR, cents for USD): exact, and no objects
+ * are created for arithmetic. Overflow throws instead of silently wrapping.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    public static long lineTotal(long unitPrice, int quantity) {
+        return Math.multiplyExact(unitPrice, quantity);
+    }
+
+    public static long add(long amount, long other) {
+        return Math.addExact(amount, other);
+    }
+
+    // Only for old double values (migration, old cache entries): 4999.99 -> 499999
+    public static long fromMajor(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    // API amounts: 4999.99 -> 499999, exactly. Throws ArithmeticException for more than 2 decimals.
+    public static long fromMajor(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    // 499999 -> 4999.99
+    public static BigDecimal toMajor(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, 2);
+    }
+}
@@ -0,0 +1,15 @@
+package com.quickcart.ecommerce.utills;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a long amount in paise that the REST API reads and writes in rupees (4999.99), see MoneyJsonConfig.
+ * Only the API's ObjectMapper knows about it: MongoDB and the Redis caches keep the paise.
+ */
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Rupees {
+}
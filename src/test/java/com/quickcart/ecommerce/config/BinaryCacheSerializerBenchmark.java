@@ -0,0 +1,64 @@
+package com.quickcart.ecommerce.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode + decode time of a cached value: the binary codec against the JSON serializer it replaced.
+ * products = 1 is a "products" entry, larger counts are "allProducts" lists.
+ *
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.quickcart.ecommerce.config.BinaryCacheSerializerBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryCacheSerializerBenchmark {
+
+    @Param({"1", "20", "2000"})
+    private int products;
+
+    private final BinaryCacheSerializer binary = CacheCodecs.serializer(1024);
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private Object value;
+
+    @Setup
+    public void setUp() {
+        value = products == 1
+                ? BinaryCacheSerializerTest.product(1)
+                : BinaryCacheSerializerTest.products(products);
+    }
+
+    @Benchmark
+    public Object binary() {
+        return binary.deserialize(binary.serialize(value));
+    }
+
+    @Benchmark
+    public Object json() {
+        return json.deserialize(json.serialize(value));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BinaryCacheSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,65 @@
+package com.quickcart.ecommerce.config;
+
+import com.quickcart.ecommerce.dto.ProductIdPage;
+import com.quickcart.ecommerce.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryCacheSerializerTest {
+
+    private final BinaryCacheSerializer binary = CacheCodecs.serializer(1024);
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+
+    @Test
+    void roundTripsRegisteredTypes() {
+        Product product = product(1);
+        assertEquals(product, binary.deserialize(binary.serialize(product)));
+
+        List<Product> list = products(500);
+        assertEquals(list, binary.deserialize(binary.serialize(list)));
+
+        ProductIdPage page = new ProductIdPage(List.of("a", "b"), "b", true);
+        assertEquals(page, binary.deserialize(binary.serialize(page)));
+    }
+
+    @Test
+    void fallsBackToJsonForUnknownTypesAndOldEntries() {
+        List<String> unknown = new ArrayList<>(List.of("not", "a", "product"));
+        assertEquals(unknown, binary.deserialize(binary.serialize(unknown)));
+
+        Product product = product(7);
+        assertEquals(product, binary.deserialize(json.serialize(product)));
+    }
+
+    // Timing is measured by BinaryCacheSerializerBenchmark
+    @Test
+    void payloadIsSmallerThanJson() {
+        for (Object value : new Object[]{product(1), products(20), products(2000)}) {
+            assertTrue(binary.serialize(value).length < json.serialize(value).length);
+        }
+    }
+
+    static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            products.add(product(i));
+        }
+        return products;
+    }
+
+    static Product product(int i) {
+        Product product = new Product();
+        product.setId(String.format("65abc123def4567890%06d", i));
+        product.setName("Wireless Bluetooth Headphones " + i);
+        product.setDescription("Premium quality wireless headphones with active noise cancellation and 30-hour battery life");
+        product.setPrice(499999 + i);
+        product.setStock(50 + i % 10);
+        return product;
+    }
+}
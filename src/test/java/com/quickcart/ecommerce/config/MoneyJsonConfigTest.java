@@ -0,0 +1,35 @@
+package com.quickcart.ecommerce.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.quickcart.ecommerce.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyJsonConfigTest {
+
+    private final ObjectMapper api = new ObjectMapper().registerModule(new MoneyJsonConfig().rupeesModule());
+
+    @Test
+    void apiSpeaksRupeesWhileTheFieldHoldsPaise() throws Exception {
+        Product product = api.readValue("{\"name\":\"Headphones\",\"price\":4999.99}", Product.class);
+        assertEquals(499999, product.getPrice()); // Not truncated to 4999
+
+        assertTrue(api.writeValueAsString(product).contains("\"price\":4999.99"));
+        assertEquals(500000, api.readValue("{\"price\":5000}", Product.class).getPrice());
+    }
+
+    @Test
+    void rejectsFractionsOfAPaisa() {
+        assertThrows(InvalidFormatException.class, () -> api.readValue("{\"price\":4999.999}", Product.class));
+    }
+
+    @Test
+    void otherMappersKeepPaise() throws Exception {
+        Product product = new ObjectMapper().readValue("{\"price\":499999}", Product.class);
+        assertEquals(499999, product.getPrice());
+    }
+}
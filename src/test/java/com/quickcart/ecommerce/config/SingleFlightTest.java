@@ -0,0 +1,84 @@
+package com.quickcart.ecommerce.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Object> first = executor.submit(() -> singleFlight.run("k", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            return "value";
+        }));
+        loading.await();
+        Future<Object> second = executor.submit(() -> singleFlight.run("k", () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        assertFalse(singleFlight.tryRun("k", () -> "skipped")); // Already in flight
+        Thread.sleep(50); // Let the second caller park on the first one's result
+        release.countDown();
+
+        assertEquals("value", first.get(5, TimeUnit.SECONDS));
+        assertEquals("value", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertTrue(singleFlight.tryRun("k", () -> "again")); // Key is free once the load is done
+    }
+
+    @Test
+    void failuresReachEveryWaiter() {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertEquals(IllegalStateException.class, failureSeenByWaiter(new IllegalStateException("mongo down")).getClass());
+            assertEquals(StackOverflowError.class, failureSeenByWaiter(new StackOverflowError()).getClass());
+        });
+    }
+
+    private Throwable failureSeenByWaiter(Throwable failure) throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> loader = executor.submit(() -> singleFlight.run("k", () -> {
+            loading.countDown();
+            release.await();
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (Exception) failure;
+        }));
+        loading.await();
+        Future<Object> waiter = executor.submit(() -> singleFlight.run("k", () -> "not called"));
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThrows(Exception.class, () -> loader.get(5, TimeUnit.SECONDS));
+        return assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS)).getCause();
+    }
+}
@@ -0,0 +1,145 @@
+package com.quickcart.ecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.quickcart.ecommerce.entity.Product;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs against a local Redis server
+class TwoLevelCacheTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+    private TwoLevelCacheManager manager;
+    private TwoLevelCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.getConnectionFactory().getConnection().flushAll();
+        manager = newManager();
+        cache = (TwoLevelCache) manager.getCache("products");
+    }
+
+    @Test
+    void missLoadsOnceThenServesFromL1() {
+        assertEquals("Headphones", cache.get("p1", () -> load("p1")).getName());
+        assertEquals(1, loads.get());
+
+        redisTemplate.delete("products::p1"); // Only L1 still has it
+        assertEquals("Headphones", cache.get("p1", () -> load("p1")).getName());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void everyReadGetsItsOwnCopy() {
+        Product first = cache.get("p1", () -> load("p1"));
+        first.setPrice(1); // Edited by a caller, never saved
+
+        assertEquals(499999, cache.get("p1", () -> load("p1")).getPrice());
+        assertEquals(499999, ((Product) cache.get("p1").get()).getPrice());
+        assertEquals(499999, ((Product) cache.getAll(Set.of("p1")).get("p1")).getPrice());
+    }
+
+    @Test
+    void peerWriteDropsTheLocalCopy() {
+        cache.get("p1", () -> load("p1"));
+        TwoLevelCache peer = (TwoLevelCache) newManager().getCache("products");
+        Product changed = product("p1");
+        changed.setName("Headphones v2");
+        peer.put("p1", changed);
+
+        assertEquals("Headphones", ((Product) cache.get("p1").get()).getName()); // Message not delivered yet
+        manager.onMessage(new DefaultMessage(TwoLevelCacheManager.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "peer|products|p1".getBytes(StandardCharsets.UTF_8)), null);
+        assertEquals("Headphones v2", ((Product) cache.get("p1").get()).getName());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchReadKnowsWhenTheRedisCopyExpires() {
+        ((TwoLevelCache) newManager().getCache("products")).put("p1", product("p1")); // Written by another node
+
+        assertEquals("Headphones", ((Product) cache.getAll(Set.of("p1", "p2")).get("p1")).getName());
+
+        TwoLevelCache.LocalEntry entry = ((Cache<Object, TwoLevelCache.LocalEntry>)
+                ReflectionTestUtils.getField(cache, "local")).getIfPresent("p1");
+        long remaining = entry.redisExpiresAt - System.currentTimeMillis();
+        assertTrue(remaining > 0 && remaining <= Duration.ofHours(1).toMillis()); // So it can be refreshed early
+    }
+
+    @Test
+    void evictDropsBothLevels() {
+        cache.get("p1", () -> load("p1"));
+        cache.evict("p1");
+
+        assertNull(cache.get("p1"));
+        assertNull(redisTemplate.opsForValue().get("products::p1"));
+    }
+
+    private TwoLevelCacheManager newManager() {
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .withCacheConfiguration("products", RedisCacheConfiguration.defaultCacheConfig()
+                        .entryTtl(Duration.ofHours(1))
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(CacheCodecs.serializer(1024))))
+                .build();
+        redisCacheManager.afterPropertiesSet();
+        return new TwoLevelCacheManager(redisCacheManager, redisTemplate, Set.of("products"), 100, Duration.ofMinutes(1), 0);
+    }
+
+    private Product load(String id) {
+        loads.incrementAndGet();
+        return product(id);
+    }
+
+    private static Product product(String id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Headphones");
+        product.setPrice(499999);
+        product.setStock(50);
+        return product;
+    }
+}
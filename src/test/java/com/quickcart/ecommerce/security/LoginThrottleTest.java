@@ -0,0 +1,48 @@
+package com.quickcart.ecommerce.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginThrottleTest {
+
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        throttle = new LoginThrottle();
+        ReflectionTestUtils.setField(throttle, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(throttle, "maxAttemptsPerIp", 3);
+        ReflectionTestUtils.setField(throttle, "maxFailuresPerUsername", 2);
+        ReflectionTestUtils.setField(throttle, "windowSeconds", 60L);
+        ReflectionTestUtils.setField(throttle, "maxTracked", 1000L);
+        throttle.init();
+    }
+
+    @Test
+    void limitsAttemptsPerIp() {
+        for (int i = 0; i < 3; i++) {
+            throttle.checkAttempt("10.0.0.1", "user" + i);
+        }
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> throttle.checkAttempt("10.0.0.1", "other"));
+        assertEquals(60, e.getRetryAfterSeconds());
+        assertDoesNotThrow(() -> throttle.checkAttempt("10.0.0.2", "other")); // Other clients are not affected
+    }
+
+    @Test
+    void locksUsernameAfterFailuresUntilASuccess() {
+        throttle.recordFailure("johndoe");
+        throttle.recordFailure("johndoe");
+
+        assertThrows(TooManyRequestsException.class, () -> throttle.checkAttempt("10.0.0.1", "johndoe"));
+
+        throttle.recordSuccess("johndoe");
+        assertDoesNotThrow(() -> throttle.checkAttempt("10.0.0.2", "johndoe"));
+    }
+}
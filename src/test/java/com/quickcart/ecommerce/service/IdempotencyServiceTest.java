@@ -0,0 +1,117 @@
+package com.quickcart.ecommerce.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Runs against a local Redis server
+class IdempotencyServiceTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private IdempotencyService service;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.getConnectionFactory().getConnection().flushAll();
+        service = newService(redisTemplate);
+    }
+
+    @Test
+    void duplicatesGetConflictWhileInFlightThenTheStoredResponse() {
+        assertTrue(service.begin("u1:placeOrder:k1").isEmpty());
+        assertEquals(HttpStatus.CONFLICT, service.begin("u1:placeOrder:k1").get().getStatusCode());
+
+        service.complete("u1:placeOrder:k1", new ResponseEntity<>("https://checkout.stripe.com/s1", HttpStatus.CREATED));
+
+        ResponseEntity<String> replay = service.begin("u1:placeOrder:k1").get();
+        assertEquals(HttpStatus.CREATED, replay.getStatusCode());
+        assertEquals("https://checkout.stripe.com/s1", replay.getBody());
+        assertTrue(service.begin("u1:placeOrder:k2").isEmpty()); // Other keys are independent
+    }
+
+    @Test
+    void replayKeepsTheLocationHeader() {
+        assertTrue(service.begin("u1:placeOrder:k1").isEmpty());
+        service.complete("u1:placeOrder:k1", ResponseEntity.accepted()
+                .location(URI.create("/order/id/o1/checkout")).body("/order/id/o1/checkout"));
+
+        ResponseEntity<String> replay = service.begin("u1:placeOrder:k1").get();
+        assertEquals(HttpStatus.ACCEPTED, replay.getStatusCode());
+        assertEquals(URI.create("/order/id/o1/checkout"), replay.getHeaders().getLocation());
+
+        // Stored before the header was kept
+        new StringRedisTemplate(connectionFactory).opsForValue().set("idempotency:u1:placeOrder:k2", "D201\nhttps://checkout.stripe.com/s1");
+        ResponseEntity<String> legacy = service.begin("u1:placeOrder:k2").get();
+        assertEquals(HttpStatus.CREATED, legacy.getStatusCode());
+        assertEquals("https://checkout.stripe.com/s1", legacy.getBody());
+        assertNull(legacy.getHeaders().getLocation());
+    }
+
+    @Test
+    void abandonedKeyCanBeRetried() {
+        assertTrue(service.begin("u1:placeOrder:k1").isEmpty());
+        service.abandon("u1:placeOrder:k1");
+        assertTrue(service.begin("u1:placeOrder:k1").isEmpty());
+    }
+
+    @Test
+    void fallsBackToLocalStoreWhenRedisIsDown() {
+        StringRedisTemplate broken = mock(StringRedisTemplate.class);
+        when(broken.opsForValue()).thenThrow(new RedisConnectionFailureException("Redis is down"));
+        IdempotencyService offline = newService(broken);
+
+        assertTrue(offline.begin("u1:placeOrder:k1").isEmpty());
+        assertEquals(HttpStatus.CONFLICT, offline.begin("u1:placeOrder:k1").get().getStatusCode());
+        offline.complete("u1:placeOrder:k1", new ResponseEntity<>("Cart is empty!", HttpStatus.BAD_REQUEST));
+        assertEquals(HttpStatus.BAD_REQUEST, offline.begin("u1:placeOrder:k1").get().getStatusCode());
+    }
+
+    private IdempotencyService newService(StringRedisTemplate redisTemplate) {
+        IdempotencyService idempotencyService = new IdempotencyService();
+        ReflectionTestUtils.setField(idempotencyService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(idempotencyService, "ttlHours", 1L);
+        ReflectionTestUtils.setField(idempotencyService, "inFlightSeconds", 60L);
+        ReflectionTestUtils.setField(idempotencyService, "localMaxSize", 1000L);
+        idempotencyService.init();
+        return idempotencyService;
+    }
+}
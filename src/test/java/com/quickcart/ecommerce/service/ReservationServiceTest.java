@@ -0,0 +1,217 @@
+package com.quickcart.ecommerce.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.quickcart.ecommerce.entity.Order;
+import com.quickcart.ecommerce.entity.StockReservation;
+import com.quickcart.ecommerce.repository.StockReservationRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The ledger lives in a map: the mocked repository and MongoTemplate evaluate the service's queries against it
+class ReservationServiceTest {
+
+    private final Map<String, StockReservation> rows = new LinkedHashMap<>();
+    private ProductService productService;
+    private MongoTemplate mongoTemplate;
+    private ReservationService service;
+
+    @BeforeEach
+    void setUp() {
+        productService = mock(ProductService.class);
+        when(productService.deductStock(anyString(), anyInt())).thenReturn(true);
+
+        StockReservationRepository repository = mock(StockReservationRepository.class);
+        when(repository.insert(anyList())).thenAnswer(invocation -> {
+            List<StockReservation> inserted = invocation.getArgument(0);
+            for (StockReservation reservation : inserted) {
+                reservation.setId("r" + (rows.size() + 1));
+                rows.put(reservation.getId(), reservation);
+            }
+            return inserted;
+        });
+        when(repository.findByOrderIdAndStatus(anyString(), anyString())).thenAnswer(invocation ->
+                rows(r -> r.getOrderId().equals(invocation.getArgument(0)) && r.getStatus().equals(invocation.getArgument(1))));
+        when(repository.findByStatusAndExpiresAtBefore(anyString(), any(Date.class), any(Pageable.class))).thenAnswer(invocation ->
+                rows(r -> r.getStatus().equals(invocation.getArgument(0)) && r.getExpiresAt().before(invocation.getArgument(1))));
+        when(repository.findByStatusAndReleasingAtBefore(anyString(), any(Date.class), any(Pageable.class))).thenAnswer(invocation ->
+                rows(r -> r.getStatus().equals(invocation.getArgument(0)) && r.getReleasingAt().before(invocation.getArgument(1))));
+
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(StockReservation.class)))
+                .thenAnswer(invocation -> {
+                    List<StockReservation> matched = matching(invocation.getArgument(0));
+                    if (matched.isEmpty()) {
+                        return null;
+                    }
+                    apply(invocation.getArgument(1), matched.get(0));
+                    return matched.get(0);
+                });
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(StockReservation.class)))
+                .thenAnswer(invocation -> {
+                    List<StockReservation> matched = matching(invocation.getArgument(0));
+                    matched.forEach(r -> apply(invocation.getArgument(1), r));
+                    return UpdateResult.acknowledged(matched.size(), (long) matched.size(), null);
+                });
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Order.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        service = new ReservationService();
+        ReflectionTestUtils.setField(service, "reservationRepository", repository);
+        ReflectionTestUtils.setField(service, "productService", productService);
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "sweepBatchSize", 500);
+        ReflectionTestUtils.setField(service, "releasingTimeoutSeconds", 300L);
+    }
+
+    @Test
+    void reserveTakesEveryLine() {
+        service.reserve("o1", lines("p1", 2, "p2", 1), inAnHour());
+
+        assertEquals(List.of(StockReservation.ACTIVE, StockReservation.ACTIVE), statuses());
+        verify(productService, never()).restoreStock(anyMap());
+    }
+
+    @Test
+    void outOfStockGivesBackOnlyTheLinesAlreadyTaken() {
+        when(productService.deductStock("p2", 1)).thenReturn(false);
+
+        assertThrows(CheckoutRejectedException.class,
+                () -> service.reserve("o1", lines("p1", 2, "p2", 1, "p3", 4), inAnHour()));
+
+        verify(productService).restoreStock(Map.of("p1", 2));
+        assertEquals(List.of(StockReservation.RELEASED, StockReservation.RELEASED, StockReservation.RELEASED), statuses());
+    }
+
+    @Test
+    void errorWhileTakingALineGivesThatLineBackToo() {
+        when(productService.deductStock("p2", 1)).thenThrow(new IllegalStateException("timeout"));
+
+        assertThrows(IllegalStateException.class,
+                () -> service.reserve("o1", lines("p1", 2, "p2", 1, "p3", 4), inAnHour()));
+
+        // p2 may or may not have been taken: over-counting beats losing stock
+        verify(productService).restoreStock(Map.of("p1", 2, "p2", 1));
+        verify(productService, never()).deductStock("p3", 4);
+    }
+
+    @Test
+    void releaseAfterCommitGivesNothingBack() {
+        service.reserve("o1", lines("p1", 2, "p2", 1), inAnHour());
+
+        assertEquals(Set.of("p1", "p2"), service.commit("o1"));
+        service.release("o1");
+
+        verify(productService, never()).restoreStock(anyMap());
+        assertEquals(List.of(StockReservation.COMMITTED, StockReservation.COMMITTED), statuses());
+        assertEquals(Set.of("p1", "p2"), service.commit("o1")); // A retried commit sees the same lines
+    }
+
+    @Test
+    void commitAfterReleaseLeavesTheDeductionToTheCaller() {
+        service.reserve("o1", lines("p1", 2), inAnHour());
+
+        service.release("o1");
+        verify(productService).restoreStock(Map.of("p1", 2));
+
+        assertEquals(Set.of(), service.commit("o1"));
+        assertEquals(List.of(StockReservation.RELEASED), statuses());
+    }
+
+    @Test
+    void sweepReleasesExpiredReservationsOnly() {
+        service.reserve("o1", lines("p1", 2), new Date(System.currentTimeMillis() - 1000));
+        service.reserve("o2", lines("p2", 1), inAnHour());
+
+        service.releaseExpired();
+
+        verify(productService).restoreStock(Map.of("p1", 2));
+        assertEquals(List.of(StockReservation.RELEASED, StockReservation.ACTIVE), statuses());
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(Order.class)); // o1 -> Expired
+    }
+
+    @Test
+    void failedGiveBackStaysReleasingUntilTheSweeperFinishesIt() {
+        service.reserve("o1", lines("p1", 2), inAnHour());
+        doThrow(new IllegalStateException("mongo down")).when(productService).restoreStock(anyMap());
+
+        assertThrows(IllegalStateException.class, () -> service.release("o1"));
+        assertEquals(List.of(StockReservation.RELEASING), statuses());
+
+        service.releaseExpired(); // Claimed moments ago: not stuck yet
+        assertEquals(List.of(StockReservation.RELEASING), statuses());
+
+        rows.get("r1").setReleasingAt(new Date(System.currentTimeMillis() - 301_000));
+        doNothing().when(productService).restoreStock(anyMap());
+        service.releaseExpired();
+        assertEquals(List.of(StockReservation.RELEASED), statuses());
+    }
+
+    private static Map<String, Integer> lines(Object... productsAndQuantities) {
+        Map<String, Integer> lines = new LinkedHashMap<>();
+        for (int i = 0; i < productsAndQuantities.length; i += 2) {
+            lines.put((String) productsAndQuantities[i], (Integer) productsAndQuantities[i + 1]);
+        }
+        return lines;
+    }
+
+    private static Date inAnHour() {
+        return new Date(System.currentTimeMillis() + 3_600_000);
+    }
+
+    private List<String> statuses() {
+        return rows.values().stream().map(StockReservation::getStatus).collect(Collectors.toList());
+    }
+
+    private List<StockReservation> rows(Predicate<StockReservation> filter) {
+        return rows.values().stream().filter(filter).collect(Collectors.toList());
+    }
+
+    // Supports what the service sends: equality and $in on top-level fields
+    private List<StockReservation> matching(Query query) {
+        Document criteria = query.getQueryObject();
+        return rows(r -> criteria.entrySet().stream().allMatch(condition -> {
+            Object actual = ReflectionTestUtils.getField(r, condition.getKey());
+            if (condition.getValue() instanceof Document && ((Document) condition.getValue()).containsKey("$in")) {
+                return ((Collection<?>) ((Document) condition.getValue()).get("$in")).contains(actual);
+            }
+            return Objects.equals(condition.getValue(), actual);
+        }));
+    }
+
+    private static void apply(Update update, StockReservation reservation) {
+        ((Document) update.getUpdateObject().get("$set"))
+                .forEach((field, value) -> ReflectionTestUtils.setField(reservation, field, value));
+    }
+}
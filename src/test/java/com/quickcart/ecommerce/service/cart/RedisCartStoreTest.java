@@ -0,0 +1,159 @@
+package com.quickcart.ecommerce.service.cart;
+
+import com.quickcart.ecommerce.entity.Cart;
+import com.quickcart.ecommerce.entity.Product;
+import com.quickcart.ecommerce.entity.ProductSnapshot;
+import com.quickcart.ecommerce.service.ProductService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Runs against a local Redis server; MongoDB and the product lookup are mocked
+class RedisCartStoreTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private RedisCartStore store;
+    private long livePrice = 1050;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.getConnectionFactory().getConnection().flushAll();
+
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Cart.class))).thenReturn(bulk);
+
+        ProductService productService = mock(ProductService.class);
+        when(productService.getByIds(anyCollection())).thenAnswer(invocation -> {
+            Map<String, Product> products = new LinkedHashMap<>();
+            for (Object id : invocation.getArgument(0, Collection.class)) {
+                products.put(id.toString(), product(id.toString(), livePrice));
+            }
+            return products;
+        });
+
+        store = new RedisCartStore();
+        ReflectionTestUtils.setField(store, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(store, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(store, "productService", productService);
+        ReflectionTestUtils.setField(store, "ttlHours", 1L);
+        ReflectionTestUtils.setField(store, "flushBatchSize", 100);
+    }
+
+    @Test
+    void servesWritesFromRedisAndMarksCartDirty() {
+        store.addItem("u1", snapshot("p1"), 2);
+        Cart cart = store.addItem("u1", snapshot("p1"), 1);
+        store.addItem("u1", snapshot("p2"), 1);
+
+        assertEquals(3, store.find("u1").get().getItems().get(0).getQuantity());
+        assertEquals(2, store.find("u1").get().getItems().size());
+        assertEquals(3150, cart.getTotalPrice());
+        assertTrue(redisTemplate.opsForSet().isMember(RedisCartStore.DIRTY_KEY, "u1"));
+
+        assertNull(store.removeItem("u1", "missing"));
+        assertEquals(1, store.removeItem("u1", "p1").getItems().size());
+
+        store.clear("u1");
+        assertTrue(store.find("u1").get().getItems().isEmpty());
+    }
+
+    @Test
+    void flushWritesDirtyCartsInOneBulkAndClearsDirtySet() {
+        store.addItem("u1", snapshot("p1"), 1);
+        store.addItem("u2", snapshot("p2"), 4);
+
+        store.flushDirty();
+
+        verify(bulk, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(bulk, times(1)).execute();
+        assertEquals(0, redisTemplate.opsForSet().size(RedisCartStore.DIRTY_KEY));
+    }
+
+    @Test
+    void failedFlushKeepsCartsDirtyForTheNextRun() {
+        store.addItem("u1", snapshot("p1"), 1);
+        when(bulk.execute()).thenThrow(new RuntimeException("MongoDB is down"));
+
+        store.flushDirty();
+
+        assertTrue(redisTemplate.opsForSet().isMember(RedisCartStore.DIRTY_KEY, "u1"));
+        assertFalse(store.find("u1").get().getItems().isEmpty()); // Redis still has the cart
+    }
+
+    @Test
+    void linesKeepThePriceTheyWereAddedAt() {
+        store.addItem("u1", snapshot("p1"), 2);
+        livePrice = 2000; // The product gets more expensive after it was added
+
+        Cart cart = store.find("u1").get();
+
+        assertEquals(1050, cart.getItems().get(0).getProduct().getUnitPrice());
+        assertEquals("Product p1", cart.getItems().get(0).getProduct().getName());
+        assertEquals(2100, cart.getTotalPrice());
+    }
+
+    private static ProductSnapshot snapshot(String id) {
+        return ProductSnapshot.of(product(id, 1050));
+    }
+
+    private static Product product(String id, long price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setPrice(price);
+        product.setStock(100);
+        return product;
+    }
+}
@@ -0,0 +1,55 @@
+package com.quickcart.ecommerce.service.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedStockCounterTest {
+
+    @Test
+    void neverSellsMoreThanTheStock() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(1000, 8);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<Integer>> buyers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            buyers.add(pool.submit(() -> {
+                int sold = 0;
+                for (int j = 0; j < 500; j++) {
+                    if (counter.tryTake(3)) {
+                        sold += 3;
+                    }
+                }
+                return sold;
+            }));
+        }
+        int sold = 0;
+        for (Future<Integer> buyer : buyers) {
+            sold += buyer.get();
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(1000, sold + counter.total());
+        assertTrue(counter.total() < 3);
+    }
+
+    @Test
+    void takesAcrossStripesWhenNoSingleStripeIsEnough() {
+        StripedStockCounter counter = new StripedStockCounter(10, 4);
+        assertTrue(counter.tryTake(9));
+        assertFalse(counter.tryTake(2));
+        assertEquals(1, counter.total());
+        counter.add(5);
+        assertTrue(counter.tryTake(6));
+        assertEquals(0, counter.total());
+    }
+}
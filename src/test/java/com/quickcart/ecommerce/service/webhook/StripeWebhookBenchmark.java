@@ -0,0 +1,86 @@
+package com.quickcart.ecommerce.service.webhook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.net.Webhook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of accepting one webhook delivery: signature check plus reading the fields we act on.
+ * streaming = StripeSignatureVerifier + StripeEventFields on the raw bytes (current path).
+ * stripeLibrary = Webhook.constructEvent + ObjectMapper.readTree on the decoded body (previous path).
+ *
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.quickcart.ecommerce.service.webhook.StripeWebhookBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StripeWebhookBenchmark {
+
+    private static final String SECRET = "whsec_test_secret";
+    private static final long TOLERANCE_SECONDS = 3600; // Longer than a run, the header is signed once
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private StripeSignatureVerifier verifier;
+    private byte[] payload;
+    private String header;
+
+    @Setup
+    public void setUp() {
+        verifier = new StripeSignatureVerifier();
+        ReflectionTestUtils.setField(verifier, "webhookSecret", SECRET);
+        ReflectionTestUtils.setField(verifier, "toleranceSeconds", TOLERANCE_SECONDS);
+        verifier.init();
+
+        payload = StripeWebhookParsingTest.PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis() / 1000;
+        header = "t=" + now + ",v1=" + HexFormat.of().formatHex(verifier.sign(now, payload));
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws Exception {
+        if (!verifier.verify(payload, header)) {
+            throw new IllegalStateException("Signature rejected");
+        }
+        StripeEventFields fields = StripeEventFields.parse(payload);
+        blackhole.consume(fields.getOrderId());
+        blackhole.consume(fields.getPaymentStatus());
+    }
+
+    @Benchmark
+    public void stripeLibrary(Blackhole blackhole) throws Exception {
+        String body = new String(payload, StandardCharsets.UTF_8); // What @RequestBody String used to do
+        Webhook.constructEvent(body, header, SECRET, TOLERANCE_SECONDS);
+        JsonNode event = objectMapper.readTree(body);
+        JsonNode object = event.path("data").path("object");
+        blackhole.consume(object.path("metadata").path("orderId").asText(null));
+        blackhole.consume(object.path("payment_status").asText());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StripeWebhookBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.quickcart.ecommerce.service.webhook;
+
+import com.stripe.net.Webhook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripeWebhookParsingTest {
+
+    private static final String SECRET = "whsec_test_secret";
+
+    // Shape of a real checkout.session.completed event, with the nested parts we must skip
+    static final String PAYLOAD = "{\n" +
+            "  \"id\": \"evt_1P2x3y\",\n" +
+            "  \"object\": \"event\",\n" +
+            "  \"api_version\": \"2022-11-15\",\n" +
+            "  \"created\": 1712345678,\n" +
+            "  \"data\": {\n" +
+            "    \"object\": {\n" +
+            "      \"id\": \"cs_test_a1b2c3\",\n" +
+            "      \"object\": \"checkout.session\",\n" +
+            "      \"amount_total\": 171400,\n" +
+            "      \"customer_details\": {\"email\": \"a@b.com\", \"address\": {\"country\": \"IN\", \"id\": \"not-this-one\"}},\n" +
+            "      \"line_items\": [{\"id\": \"li_1\", \"metadata\": {\"orderId\": \"wrong\"}}],\n" +
+            "      \"metadata\": {\"userId\": \"65abc123def456789012\", \"orderId\": \"65def789abc0123456789012\"},\n" +
+            "      \"payment_status\": \"paid\",\n" +
+            "      \"status\": \"complete\"\n" +
+            "    }\n" +
+            "  },\n" +
+            "  \"livemode\": false,\n" +
+            "  \"request\": {\"id\": null, \"idempotency_key\": null},\n" +
+            "  \"type\": \"checkout.session.completed\"\n" +
+            "}";
+
+    private StripeSignatureVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        verifier = new StripeSignatureVerifier();
+        ReflectionTestUtils.setField(verifier, "webhookSecret", SECRET);
+        ReflectionTestUtils.setField(verifier, "toleranceSeconds", 300L);
+        verifier.init();
+    }
+
+    @Test
+    void extractsOnlyTheFieldsWeUse() throws Exception {
+        StripeEventFields fields = StripeEventFields.parse(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("evt_1P2x3y", fields.getEventId());
+        assertEquals("checkout.session.completed", fields.getType());
+        assertEquals("cs_test_a1b2c3", fields.getObjectId());
+        assertEquals("paid", fields.getPaymentStatus());
+        assertEquals("65def789abc0123456789012", fields.getOrderId());
+
+        assertNull(StripeEventFields.parse("{\"id\":\"evt_2\",\"type\":\"x\",\"data\":{\"object\":{}}}".getBytes()).getOrderId());
+    }
+
+    @Test
+    void acceptsTheSameSignaturesAsStripesLibrary() {
+        byte[] payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis() / 1000;
+        String header = "t=" + now + ",v1=" + HexFormat.of().formatHex(verifier.sign(now, payload));
+
+        assertDoesNotThrow(() -> Webhook.Signature.verifyHeader(PAYLOAD, header, SECRET, 300));
+        assertTrue(verifier.verify(payload, header));
+        assertTrue(verifier.verify(payload, "t=" + now + ",v1=00ff," + header.substring(header.indexOf("v1="))));
+
+        assertFalse(verifier.verify((PAYLOAD + " ").getBytes(StandardCharsets.UTF_8), header)); // Tampered body
+        assertFalse(verifier.verify(payload, header.replace("t=" + now, "t=" + (now - 301)))); // Too old
+        assertFalse(verifier.verify(payload, "v1=abc"));
+        assertFalse(verifier.verify(payload, null));
+    }
+}
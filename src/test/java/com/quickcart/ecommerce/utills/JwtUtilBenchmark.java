@@ -0,0 +1,88 @@
+package com.quickcart.ecommerce.utills;
+
+import com.quickcart.ecommerce.security.AuthenticatedUser;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request from its token.
+ * parseUser = current path (repeated token, served from the verified-token cache).
+ * verify = one parse with the shared parser (a token seen for the first time).
+ * tripleParse = previous filter path: extractUsername + validateToken, each building the key and parser again.
+ *
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.quickcart.ecommerce.utills.JwtUtilBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheSize", 10_000L);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheTtlSeconds", 60L);
+        jwtUtil.init();
+        token = jwtUtil.generateToken(new AuthenticatedUser("u1", "johndoe", null, List.of("USER")));
+    }
+
+    @Benchmark
+    public AuthenticatedUser parseUser() {
+        return jwtUtil.parseUser(token);
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return jwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public boolean tripleParse() {
+        String username = parseClaims(token).getSubject(); // extractUsername
+        Claims claims = parseClaims(token); // validateToken
+        boolean expired = parseClaims(token).getExpiration().before(new Date()); // isTokenExpired
+        return username != null && claims.getSubject() != null && !expired;
+    }
+
+    private static Claims parseClaims(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}
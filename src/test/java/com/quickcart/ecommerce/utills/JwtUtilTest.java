@@ -0,0 +1,68 @@
+package com.quickcart.ecommerce.utills;
+
+import com.quickcart.ecommerce.security.AuthenticatedUser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheSize", 100L);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheTtlSeconds", 60L);
+        jwtUtil.init();
+    }
+
+    @Test
+    void tokenCarriesUserIdAndRoles() {
+        String token = jwtUtil.generateToken(new AuthenticatedUser("u1", "johndoe", "hash", List.of("USER", "ADMIN")));
+
+        AuthenticatedUser user = jwtUtil.parseUser(token);
+
+        assertEquals("u1", user.getId());
+        assertEquals("johndoe", user.getUsername());
+        assertEquals(List.of("USER", "ADMIN"), user.getRoles());
+        assertEquals("ROLE_ADMIN", user.getAuthorities().stream().skip(1).findFirst().get().getAuthority());
+        assertNull(user.getPassword());
+    }
+
+    @Test
+    void rejectsTamperedAndExpiredTokensButReadsLegacyOnes() {
+        String token = jwtUtil.generateToken(new AuthenticatedUser("u1", "johndoe", null, List.of("USER")));
+        assertNull(jwtUtil.parseUser(token.substring(0, token.length() - 2) + "xx"));
+
+        String expired = Jwts.builder().subject("johndoe").expiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes())).compact();
+        assertNull(jwtUtil.parseUser(expired));
+
+        // Issued before the claims existed: valid, but the caller has to load the user
+        String legacy = Jwts.builder().subject("johndoe").expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes())).compact();
+        assertEquals("johndoe", jwtUtil.parseUser(legacy).getUsername());
+        assertNull(jwtUtil.parseUser(legacy).getId());
+    }
+
+    @Test
+    void repeatedTokenIsServedFromTheVerifiedCache() {
+        String token = jwtUtil.generateToken(new AuthenticatedUser("u1", "johndoe", null, List.of("USER")));
+
+        assertSame(jwtUtil.parseUser(token), jwtUtil.parseUser(token));
+        assertNull(jwtUtil.verify("not-a-token"));
+    }
+}